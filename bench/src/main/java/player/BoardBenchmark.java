@@ -0,0 +1,115 @@
+/* BoardBenchmark.java */
+
+package player;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ *  JMH benchmarks of the Board hot paths.  Each benchmark runs once over
+ *  every corpus position of the phase, so scores are per corpus pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+  @Param({Positions.ADD, Positions.STEP})
+  public String phase;
+
+  private Board[] boards;
+  private int[] sides;
+  private Move[] firstMoves; // a valid move of the side to move in each position
+  private int[] moveBuffer = new int[BitBoard.MAX_MOVES];
+  private Playout playout = new Playout(22);
+
+  @Setup
+  public void setUp() throws Exception {
+    Move[][] positions = Positions.load(phase);
+    boards = new Board[positions.length];
+    sides = new int[positions.length];
+    firstMoves = new Move[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      boards[i] = Positions.board(positions[i]);
+      sides[i] = Positions.sideToMove(positions[i]);
+      firstMoves[i] = (Move) boards[i].validMoves(sides[i]).front().item();
+    }
+  }
+
+  @Benchmark
+  public void validMoves(Blackhole bh) {
+    for (int i = 0; i < boards.length; i++) {
+      bh.consume(boards[i].validMoves(sides[i]));
+    }
+  }
+
+  @Benchmark
+  public void generateMoves(Blackhole bh) {
+    for (int i = 0; i < boards.length; i++) {
+      bh.consume(boards[i].getBitBoard().generateMoves(sides[i], moveBuffer));
+    }
+  }
+
+  @Benchmark
+  public void randomMove(Blackhole bh) {
+    for (int i = 0; i < boards.length; i++) {
+      bh.consume(playout.randomMove(boards[i].getBitBoard(), sides[i]));
+    }
+  }
+
+  @Benchmark
+  public void playout(Blackhole bh) {
+    for (int i = 0; i < boards.length; i++) {
+      bh.consume(playout.play(boards[i].getBitBoard(), sides[i], MctsPlayer.MAX_PLAYOUT_MOVES));
+    }
+  }
+
+  @Benchmark
+  public void isWin(Blackhole bh) {
+    for (Board b : boards) {
+      bh.consume(b.isWin(Board.WHITE));
+      bh.consume(b.isWin(Board.BLACK));
+    }
+  }
+
+  @Benchmark
+  public void isWinByPaths(Blackhole bh) {
+    for (Board b : boards) {
+      bh.consume(b.isWinByPaths(Board.WHITE));
+      bh.consume(b.isWinByPaths(Board.BLACK));
+    }
+  }
+
+  @Benchmark
+  public void boardEvaluator(Blackhole bh) {
+    for (Board b : boards) {
+      bh.consume(b.boardEvaluator());
+    }
+  }
+
+  @Benchmark
+  public void evaluate(Blackhole bh) {
+    for (Board b : boards) {
+      bh.consume(b.getBitBoard().evaluate());
+    }
+  }
+
+  @Benchmark
+  public void findAllConnections(Blackhole bh) {
+    for (Board b : boards) {
+      bh.consume(b.findAllConnections());
+    }
+  }
+
+  @Benchmark
+  public void makeUndoMove(Blackhole bh) {
+    for (int i = 0; i < boards.length; i++) {
+      bh.consume(boards[i].makeMove(firstMoves[i], sides[i]));
+      boards[i].undoMove(firstMoves[i], sides[i]);
+    }
+  }
+}
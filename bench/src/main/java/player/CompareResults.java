@@ -0,0 +1,115 @@
+/* CompareResults.java */
+
+package player;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ *  Compares two JMH JSON result files, for example from two commits, and
+ *  flags every benchmark that got slower by more than a threshold.
+ *
+ *  Usage: java -cp target/benchmarks.jar player.CompareResults baseline.json current.json [threshold%]
+ *
+ *  Exits with status 1 if any benchmark regressed.
+ */
+public class CompareResults {
+
+  private static final Pattern BENCHMARK = Pattern.compile("\"benchmark\"\\s*:\\s*\"([^\"]+)\"");
+  private static final Pattern MODE = Pattern.compile("\"mode\"\\s*:\\s*\"([^\"]+)\"");
+  private static final Pattern PARAMS = Pattern.compile("\"params\"\\s*:\\s*\\{([^}]*)\\}");
+  private static final Pattern PARAM = Pattern.compile("\"([^\"]+)\"\\s*:\\s*\"([^\"]*)\"");
+  private static final Pattern SCORE = Pattern.compile(
+          "\"primaryMetric\"\\s*:\\s*\\{\\s*\"score\"\\s*:\\s*([-+0-9.eE]+)\\s*,\\s*\"scoreError\"\\s*:\\s*([-+0-9.eENa]+)");
+  private static final Pattern UNIT = Pattern.compile("\"scoreUnit\"\\s*:\\s*\"([^\"]+)\"");
+
+  /**
+   * One benchmark result: score, error and whether a higher score is better.
+   */
+  static class Result {
+    double score;
+    double error;
+    String unit;
+    boolean higherIsBetter;
+  }
+
+  /**
+   * Reads a JMH JSON file into results keyed by benchmark name and parameters.
+   */
+  static Map<String, Result> read(Path file) throws IOException {
+    String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    Map<String, Result> results = new LinkedHashMap<String, Result>();
+    Matcher benchmark = BENCHMARK.matcher(json);
+    List<Integer> starts = new ArrayList<Integer>();
+    List<String> names = new ArrayList<String>();
+    while (benchmark.find()) {
+      starts.add(benchmark.start());
+      names.add(benchmark.group(1));
+    }
+    for (int i = 0; i < starts.size(); i++) {
+      int end = i + 1 < starts.size() ? starts.get(i + 1) : json.length();
+      String entry = json.substring(starts.get(i), end);
+      String name = names.get(i);
+      Matcher params = PARAMS.matcher(entry);
+      if (params.find()) {
+        Matcher param = PARAM.matcher(params.group(1));
+        StringBuilder key = new StringBuilder(name);
+        while (param.find()) {
+          key.append(' ').append(param.group(1)).append('=').append(param.group(2));
+        }
+        name = key.toString();
+      }
+      Matcher score = SCORE.matcher(entry);
+      if (!score.find()) {
+        continue;
+      }
+      Result r = new Result();
+      r.score = Double.parseDouble(score.group(1));
+      r.error = score.group(2).equals("NaN") ? 0 : Double.parseDouble(score.group(2));
+      Matcher unit = UNIT.matcher(entry);
+      r.unit = unit.find() ? unit.group(1) : "";
+      Matcher mode = MODE.matcher(entry);
+      r.higherIsBetter = mode.find() && mode.group(1).equals("thrpt");
+      results.put(name, r);
+    }
+    return results;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.out.println("Usage: java player.CompareResults baseline.json current.json [threshold%]");
+      System.exit(2);
+    }
+    Map<String, Result> baseline = read(Paths.get(args[0]));
+    Map<String, Result> current = read(Paths.get(args[1]));
+    double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 5;
+
+    int regressions = 0;
+    for (Map.Entry<String, Result> e : current.entrySet()) {
+      Result now = e.getValue();
+      Result before = baseline.get(e.getKey());
+      if (before == null) {
+        System.out.printf("%-60s %12.3f %s  (new)%n", e.getKey(), now.score, now.unit);
+        continue;
+      }
+      double change = 100 * (now.score - before.score) / before.score;
+      double worse = now.higherIsBetter ? -change : change;
+      // a change within both runs' error margins is noise
+      boolean significant = Math.abs(now.score - before.score) > now.error + before.error;
+      String verdict = "";
+      if (worse > threshold && significant) {
+        verdict = "  REGRESSION";
+        regressions++;
+      } else if (worse < -threshold && significant) {
+        verdict = "  improved";
+      }
+      System.out.printf("%-60s %12.3f -> %12.3f %s %+7.1f%%%s%n",
+              e.getKey(), before.score, now.score, now.unit, change, verdict);
+    }
+    System.out.println(regressions + " regression(s) above " + threshold + "%");
+    System.exit(regressions > 0 ? 1 : 0);
+  }
+}
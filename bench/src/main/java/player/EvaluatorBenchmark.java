@@ -0,0 +1,80 @@
+/* EvaluatorBenchmark.java */
+
+package player;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ *  JMH benchmarks of the cost of each evaluation function: one evaluation
+ *  of every corpus position of the phase, and a fixed-depth chooseMove()
+ *  over them.  EvaluatorMatch measures their playing strength.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluatorBenchmark {
+
+  // Transposition table size of each player, in megabytes
+  private static final int TABLE_SIZE = 4;
+
+  // Search depth of the chooseMove benchmark
+  private static final int DEPTH = 3;
+
+  @Param({Positions.ADD, Positions.STEP})
+  public String phase;
+
+  @Param({"connections", "features"})
+  public String evaluator;
+
+  private Move[][] positions;
+  private BitBoard[] boards;
+  private Evaluator eval;
+
+  /**
+   * Fresh players for every chooseMove() invocation, so the transposition
+   * tables start empty.  Kept apart so that evaluate() runs without
+   * per-invocation setup.
+   */
+  @State(Scope.Thread)
+  public static class Players {
+    MachinePlayer[] players;
+
+    @Setup(Level.Invocation)
+    public void setUp(EvaluatorBenchmark b) {
+      players = new MachinePlayer[b.positions.length];
+      for (int i = 0; i < players.length; i++) {
+        players[i] = Positions.player(b.positions[i], DEPTH, TABLE_SIZE, b.eval);
+      }
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    eval = Tournament.evaluator(evaluator);
+    positions = Positions.load(phase);
+    boards = new BitBoard[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      boards[i] = Positions.board(positions[i]).getBitBoard();
+    }
+  }
+
+  @Benchmark
+  public void evaluate(Blackhole bh) {
+    for (BitBoard b : boards) {
+      bh.consume(eval.evaluate(b));
+    }
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public void chooseMove(Players players, Blackhole bh) {
+    for (MachinePlayer p : players.players) {
+      bh.consume(p.chooseMove());
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/* EvaluatorMatch.java */
+
+package player;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ *  Measures the playing strength of two evaluation functions: fixed-depth
+ *  machine players using them play pairs of games from the same random
+ *  opening, each side once with each color, and the second evaluator's
+ *  score is reported with the time each spends per move.
+ *
+ *  Usage: java -cp target/benchmarks.jar player.EvaluatorMatch evaluatorA evaluatorB [pairs] [depth] [openingMoves]
+ *
+ *  An evaluator is "connections", "features" or a FeatureEvaluator weight file.
+ */
+public class EvaluatorMatch {
+
+  // Transposition table size of each player, in megabytes
+  private static final int TABLE_SIZE = 4;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.out.println("Usage: java player.EvaluatorMatch evaluatorA evaluatorB [pairs] [depth] [openingMoves]");
+      System.exit(2);
+    }
+    Evaluator[] evaluators = {Tournament.evaluator(args[0]), Tournament.evaluator(args[1])};
+    int pairs = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    int depth = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+    int openingMoves = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+
+    double[] points = new double[2];
+    long[] nanos = new long[2];
+    int[] moves = new int[2];
+    Random random = new Random(1);
+    for (int pair = 0; pair < pairs; pair++) {
+      Move[] opening = Tournament.randomOpening(random, openingMoves);
+      for (int whiteSide = 0; whiteSide < 2; whiteSide++) {
+        Tournament.TimedPlayer[] players = new Tournament.TimedPlayer[2];
+        for (int e = 0; e < 2; e++) {
+          int color = e == whiteSide ? Board.WHITE : Board.BLACK;
+          players[e] = new Tournament.TimedPlayer(new MachinePlayer(color, depth, TABLE_SIZE, evaluators[e]));
+        }
+        int result = Tournament.playGame(players[whiteSide], players[1 - whiteSide], opening);
+        for (int e = 0; e < 2; e++) {
+          int color = e == whiteSide ? Board.WHITE : Board.BLACK;
+          points[e] += result == Tournament.DRAW ? 0.5 : result == color ? 1 : 0;
+          nanos[e] += players[e].getNanos();
+          moves[e] += players[e].getMoves();
+        }
+      }
+    }
+
+    int games = 2 * pairs;
+    double score = points[1] / games;
+    System.out.println(games + " games at depth " + depth + " from " + openingMoves + "-move random openings");
+    for (int e = 0; e < 2; e++) {
+      System.out.printf("%-60s %5.1f points, %8.3f ms/move%n", evaluators[e], points[e],
+              nanos[e] / 1e6 / Math.max(moves[e], 1));
+    }
+    System.out.printf("Score of %s: %.1f%%, Elo difference %+.0f%n", evaluators[1], 100 * score,
+            Tournament.elo(score));
+  }
+}
@@ -0,0 +1,115 @@
+/* Positions.java */
+
+package player;
+
+import java.io.*;
+import java.util.ArrayList;
+
+/**
+ *  The benchmark position corpus, read from positions.txt.  Each position is
+ *  kept as the moves leading to it, so it can be replayed onto a Board, a
+ *  BitBoard or a Player with the right move count and player to move.
+ */
+public class Positions {
+
+  // Phases, as written in positions.txt
+  public static final String ADD = "add";
+  public static final String STEP = "step";
+
+  /**
+   * Returns the move sequences of every position of the given phase.
+   */
+  public static Move[][] load(String phase) {
+    ArrayList<Move[]> positions = new ArrayList<Move[]>();
+    InputStream in = Positions.class.getResourceAsStream("/positions.txt");
+    if (in == null) {
+      throw new IllegalStateException("positions.txt is not on the classpath");
+    }
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] fields = line.split("\\s+");
+        if (!fields[0].equals(phase)) {
+          continue;
+        }
+        Move[] moves = new Move[fields.length - 1];
+        for (int i = 1; i < fields.length; i++) {
+          moves[i - 1] = parseMove(fields[i]);
+        }
+        positions.add(moves);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return positions.toArray(new Move[positions.size()][]);
+  }
+
+  /**
+   * Parses an add move "xy" or a step move "x2y2-x1y1".
+   */
+  static Move parseMove(String s) {
+    if (s.length() == 2) {
+      return new Move(digit(s, 0), digit(s, 1));
+    }
+    if (s.length() == 5 && s.charAt(2) == '-') {
+      return new Move(digit(s, 3), digit(s, 4), digit(s, 0), digit(s, 1));
+    }
+    throw new IllegalArgumentException("Bad move in positions.txt: " + s);
+  }
+
+  private static int digit(String s, int i) {
+    return Character.digit(s.charAt(i), 10);
+  }
+
+  /**
+   * Returns the player who makes the move after the given moves, white moving first.
+   */
+  public static int sideToMove(Move[] moves) {
+    return moves.length % 2 == 0 ? Board.WHITE : Board.BLACK;
+  }
+
+  /**
+   * Replays moves onto a new Board.
+   */
+  public static Board board(Move[] moves) {
+    Board b = new Board();
+    int side = Board.WHITE;
+    for (Move m : moves) {
+      if (!b.makeMove(m, side)) {
+        throw new IllegalStateException("Illegal move in positions.txt: " + m);
+      }
+      side = Board.otherPlayer(side);
+    }
+    return b;
+  }
+
+  /**
+   * Returns a fixed-depth machine player for the side to move, with moves replayed.
+   */
+  public static MachinePlayer player(Move[] moves, int depth, int tableSize) {
+    return player(moves, depth, tableSize, new ConnectionEvaluator());
+  }
+
+  /**
+   * Returns a fixed-depth machine player for the side to move with the
+   * given evaluation function, with moves replayed.
+   */
+  static MachinePlayer player(Move[] moves, int depth, int tableSize, Evaluator evaluator) {
+    int side = sideToMove(moves);
+    MachinePlayer p = new MachinePlayer(side, depth, tableSize, evaluator);
+    int mover = Board.WHITE;
+    for (Move m : moves) {
+      if (mover == side) {
+        p.forceMove(m);
+      } else {
+        p.opponentMove(m);
+      }
+      mover = Board.otherPlayer(mover);
+    }
+    return p;
+  }
+}
@@ -0,0 +1,53 @@
+/* SearchBenchmark.java */
+
+package player;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ *  JMH benchmarks of a full MachinePlayer.chooseMove() at fixed depths, once
+ *  over every corpus position of the phase.  Each invocation gets fresh
+ *  players, so the transposition table starts empty.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+  // Transposition table size of each player, in megabytes
+  private static final int TABLE_SIZE = 4;
+
+  @Param({Positions.ADD, Positions.STEP})
+  public String phase;
+
+  @Param({"1", "2", "3"})
+  public int depth;
+
+  private Move[][] positions;
+  private MachinePlayer[] players;
+
+  @Setup(Level.Trial)
+  public void loadPositions() {
+    positions = Positions.load(phase);
+    players = new MachinePlayer[positions.length];
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpPlayers() {
+    for (int i = 0; i < positions.length; i++) {
+      players[i] = Positions.player(positions[i], depth, TABLE_SIZE);
+    }
+  }
+
+  @Benchmark
+  public void chooseMove(Blackhole bh) {
+    for (MachinePlayer p : players) {
+      bh.consume(p.chooseMove());
+    }
+  }
+}
@@ -0,0 +1,167 @@
+/* IntList.java */
+
+package list;
+
+import java.util.Arrays;
+
+/**
+ *  An IntList is a mutable list of ints kept in an array that grows as
+ *  needed.  Unlike a DList it allocates nothing per item, so one IntList
+ *  can be cleared and refilled many times without creating garbage.
+ *
+ **/
+
+public class IntList {
+
+    /**
+     *  items holds the list in items[0..size-1].
+     **/
+    private int[] items;
+    private int size;
+
+    /**
+     *  IntList() constructs an empty IntList.
+     **/
+    public IntList() {
+        this(16);
+    }
+
+    /**
+     *  IntList() constructs an empty IntList with room for capacity items
+     *  before it grows.
+     **/
+    public IntList(int capacity) {
+        items = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     *  length() returns the length of this IntList.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public int length() {
+        return size;
+    }
+
+    /**
+     *  isEmpty() returns true if this IntList is empty, false otherwise.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     *  clear() removes every item, keeping the storage for reuse.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     *  add() appends an item at the back of this IntList.
+     *
+     *  Performance:  runs in amortized O(1) time.
+     **/
+    public void add(int item) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, 2 * size);
+        }
+        items[size++] = item;
+    }
+
+    /**
+     *  addAll() appends the first n items of an array.
+     *
+     *  Performance:  runs in O(n) time.
+     **/
+    public void addAll(int[] source, int n) {
+        if (size + n > items.length) {
+            items = Arrays.copyOf(items, Math.max(2 * items.length, size + n));
+        }
+        System.arraycopy(source, 0, items, size, n);
+        size += n;
+    }
+
+    /**
+     *  get() returns the item at index, 0 indexed.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " in an IntList of length " + size);
+        }
+        return items[index];
+    }
+
+    /**
+     *  set() replaces the item at index.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public void set(int index, int item) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " in an IntList of length " + size);
+        }
+        items[index] = item;
+    }
+
+    /**
+     *  removeLast() removes and returns the item at the back.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public int removeLast() {
+        if (size == 0) {
+            throw new IndexOutOfBoundsException("removeLast() of an empty IntList");
+        }
+        return items[--size];
+    }
+
+    /**
+     *  indexOf() returns the index of the first occurrence of item, or -1.
+     *
+     *  Performance:  runs in O(n) time.
+     **/
+    public int indexOf(int item) {
+        for (int i = 0; i < size; i++) {
+            if (items[i] == item) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     *  contains() returns true if item is in this IntList.
+     *
+     *  Performance:  runs in O(n) time.
+     **/
+    public boolean contains(int item) {
+        return indexOf(item) >= 0;
+    }
+
+    /**
+     *  toArray() returns a new array of the items, in order.
+     *
+     *  Performance:  runs in O(n) time.
+     **/
+    public int[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+
+    /**
+     *  toString() returns a String representation of this IntList.
+     **/
+    public String toString() {
+        StringBuilder result = new StringBuilder("[  ");
+        for (int i = 0; i < size; i++) {
+            result.append(items[i]).append("  ");
+        }
+        return result.append("]").toString();
+    }
+}
@@ -0,0 +1,119 @@
+/* IntStack.java */
+
+package list;
+
+/**
+ *  An IntStack is a stack of ints with a capacity fixed when it is made,
+ *  for depth-first searches whose depth is bounded in advance.  Pushing
+ *  and popping allocate nothing.
+ *
+ **/
+
+public class IntStack {
+
+    /**
+     *  items holds the stack bottom first in items[0..size-1].
+     **/
+    private final int[] items;
+    private int size;
+
+    /**
+     *  IntStack() constructs an empty IntStack that holds at most capacity items.
+     **/
+    public IntStack(int capacity) {
+        items = new int[capacity];
+    }
+
+    /**
+     *  size() returns the number of items on this IntStack.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public int size() {
+        return size;
+    }
+
+    /**
+     *  isEmpty() returns true if this IntStack is empty, false otherwise.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     *  capacity() returns the most items this IntStack can hold.
+     **/
+    public int capacity() {
+        return items.length;
+    }
+
+    /**
+     *  clear() removes every item.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     *  push() puts an item on top of this IntStack.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public void push(int item) {
+        if (size == items.length) {
+            throw new IllegalStateException("push() onto a full IntStack of capacity " + items.length);
+        }
+        items[size++] = item;
+    }
+
+    /**
+     *  pop() removes and returns the item on top.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public int pop() {
+        if (size == 0) {
+            throw new IllegalStateException("pop() of an empty IntStack");
+        }
+        return items[--size];
+    }
+
+    /**
+     *  peek() returns the item on top without removing it.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public int peek() {
+        if (size == 0) {
+            throw new IllegalStateException("peek() of an empty IntStack");
+        }
+        return items[size - 1];
+    }
+
+    /**
+     *  get() returns the item at index, 0 being the bottom of the stack.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " in an IntStack of size " + size);
+        }
+        return items[index];
+    }
+
+    /**
+     *  toString() returns a String representation of this IntStack, bottom first.
+     **/
+    public String toString() {
+        StringBuilder result = new StringBuilder("[  ");
+        for (int i = 0; i < size; i++) {
+            result.append(items[i]).append("  ");
+        }
+        return result.append("]").toString();
+    }
+}
@@ -0,0 +1,130 @@
+/* SquareSet.java */
+
+package list;
+
+/**
+ *  A SquareSet is a mutable set of the squares of an 8*8 board, numbered
+ *  0 to 63, kept as the bits of one long.  Membership, insertion and
+ *  removal are single bit operations, and iterating visits the squares in
+ *  increasing order without allocating:
+ *
+ *    for (int s = set.first(); s >= 0; s = set.next(s)) { ... }
+ *
+ **/
+
+public class SquareSet {
+
+    public static final int SQUARES = 64;
+
+    private long bits;
+
+    /**
+     *  SquareSet() constructs an empty SquareSet.
+     **/
+    public SquareSet() {
+    }
+
+    /**
+     *  SquareSet() constructs the SquareSet of the set bits of mask.
+     **/
+    public SquareSet(long mask) {
+        bits = mask;
+    }
+
+    /**
+     *  mask() returns the squares as the set bits of a long.
+     **/
+    public long mask() {
+        return bits;
+    }
+
+    /**
+     *  setMask() replaces the squares with the set bits of mask.
+     **/
+    public void setMask(long mask) {
+        bits = mask;
+    }
+
+    /**
+     *  size() returns the number of squares in this SquareSet.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public int size() {
+        return Long.bitCount(bits);
+    }
+
+    /**
+     *  isEmpty() returns true if this SquareSet is empty, false otherwise.
+     **/
+    public boolean isEmpty() {
+        return bits == 0;
+    }
+
+    /**
+     *  clear() removes every square.
+     **/
+    public void clear() {
+        bits = 0;
+    }
+
+    /**
+     *  add() inserts square s.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public void add(int s) {
+        bits |= 1L << check(s);
+    }
+
+    /**
+     *  remove() removes square s, if present.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public void remove(int s) {
+        bits &= ~(1L << check(s));
+    }
+
+    /**
+     *  contains() returns true if square s is in this SquareSet.
+     *
+     *  Performance:  runs in O(1) time.
+     **/
+    public boolean contains(int s) {
+        return (bits & (1L << check(s))) != 0;
+    }
+
+    /**
+     *  first() returns the smallest square, or -1 if this SquareSet is empty.
+     **/
+    public int first() {
+        return bits == 0 ? -1 : Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     *  next() returns the smallest square greater than s, or -1 if there is none.
+     **/
+    public int next(int s) {
+        long rest = bits & (-2L << check(s)); // -2L << 63 is 0
+        return rest == 0 ? -1 : Long.numberOfTrailingZeros(rest);
+    }
+
+    private static int check(int s) {
+        if (s < 0 || s >= SQUARES) {
+            throw new IndexOutOfBoundsException("Square " + s + " is not on an 8*8 board");
+        }
+        return s;
+    }
+
+    /**
+     *  toString() returns a String representation of this SquareSet.
+     **/
+    public String toString() {
+        StringBuilder result = new StringBuilder("{  ");
+        for (int s = first(); s >= 0; s = next(s)) {
+            result.append(s).append("  ");
+        }
+        return result.append("}").toString();
+    }
+}
@@ -0,0 +1,1445 @@
+package player;
+
+import java.util.Random;
+import list.*;
+
+/** The BitBoard class is the search representation of the game board.
+ *
+ * Each color's chips are stored in one 64-bit word.  Square (x, y) is bit
+ * y * 8 + x, so boards up to 8*8 fit.  Corners, goal areas and neighbors are
+ * precomputed as masks, and makeMove/undoMove only flip bits, so searching on
+ * a BitBoard allocates nothing per node.
+ *
+ * The line-of-sight connection graph is kept up to date as chips come and go:
+ * links[s] holds the chips of the same color that the chip on s sees first in
+ * each of the 8 directions.  Adding or removing a chip only touches the 4 lines
+ * through its square.  The number of connections of each color, the sum of
+ * its chips' link counts, is kept along with the graph, so evaluating a
+ * board reads two counters.  So is the number of blocked rays of each color:
+ * (chip, direction) pairs whose first chip seen is the opponent's.
+ *
+ * A 64-bit Zobrist key of the chips and the player to move is updated along
+ * with them, for transposition tables.
+ */
+class BitBoard {
+    // Zobrist keys, fixed so that keys are stable across runs
+    private static final long[][] ZOBRIST = new long[2][64];
+    private static final long ZOBRIST_BLACK_TO_MOVE;
+    static {
+        Random random = new Random(0x4e6574776f726bL);
+        for (int color = 0; color < 2; color++) {
+            for (int s = 0; s < 64; s++) {
+                ZOBRIST[color][s] = random.nextLong();
+            }
+        }
+        ZOBRIST_BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private final long[] chips = new long[2]; // indexed by color: BLACK, WHITE
+    private final long[] links = new long[64]; // indexed by square, 0 for empty squares
+    private final int[] connections = new int[2]; // set bits of links, indexed by color
+    private final int[] blocked = new int[2]; // rays ending at an opponent chip, indexed by color
+    private final int length;
+    private int numMoves = 0;
+    private int nextPlayer = Board.WHITE;
+    private long key = 0;
+    private int[] moveScratch; // buffer of generateMoves(int, IntList), made on first use
+    private final int[] trialSquares = new int[16]; // links changed by winsWith, to put back
+    private final long[] trialLinks = new long[16];
+    private long networkLines; // squares between the chips of the network findNetwork last found
+
+    // Masks depending only on the board length
+    private final long boardMask;
+    private final long cornerMask;
+    private final long[] goalMask = new long[2];      // own goal areas, indexed by color
+    private final long[] startGoalMask = new long[2]; // top line for black, left line for white
+    private final long[] endGoalMask = new long[2];   // bottom line for black, right line for white
+    private final long[] neighbors; // squares next to each square, shared by boards of this length
+    private final long[][] rays;     // squares seen from each square in each direction, likewise
+    private final long[] addMask = new long[2]; // squares player may ever put a chip on, indexed by color
+
+    // Most moves a position can have: 20 chips stepping to at most 44 squares each
+    static final int MAX_MOVES = 1024;
+
+    private static final long NOT_COLUMN_0 = ~0x0101010101010101L;
+    private static final long NOT_COLUMN_7 = ~0x8080808080808080L;
+
+    // Per board length: NEIGHBORS[length][s] holds the squares next to s,
+    // RAYS[length][d][s] the squares from s to the board's edge in
+    // direction Board.DIRECTIONS[d], s excluded.  Directions 0 to 3 lower
+    // the square index and 4 to 7 raise it, so the chip nearest s on a ray
+    // is the highest or lowest set bit of the ray's occupied squares.
+    private static final long[][] NEIGHBORS = new long[9][];
+    private static final long[][][] RAYS = new long[9][][];
+    static {
+        for (int length = 3; length <= 8; length++) {
+            long[] neighbors = new long[64];
+            long[][] rays = new long[8][64];
+            for (int x = 0; x < length; x++) {
+                for (int y = 0; y < length; y++) {
+                    int s = square(x, y);
+                    for (int d = 0; d < 8; d++) {
+                        int dx = Board.DIRECTIONS[d][0], dy = Board.DIRECTIONS[d][1];
+                        int i = x + dx, j = y + dy;
+                        if (inBound(i, j, length)) {
+                            neighbors[s] |= bit(i, j);
+                        }
+                        for (; inBound(i, j, length); i += dx, j += dy) {
+                            rays[d][s] |= bit(i, j);
+                        }
+                    }
+                }
+            }
+            NEIGHBORS[length] = neighbors;
+            RAYS[length] = rays;
+        }
+    }
+
+    /**
+     * Create a new square empty board
+     * @param length
+     *          length of the board, at most 8
+     */
+    BitBoard(int length) {
+        if (length < 3 || length > 8) {
+            throw new IllegalArgumentException("BitBoard length must be between 3 and 8: " + length);
+        }
+        this.length = length;
+
+        long all = 0, corners = 0;
+        for (int x = 0; x < length; x++) {
+            for (int y = 0; y < length; y++) {
+                long bit = bit(x, y);
+                all |= bit;
+                boolean xEdge = x == 0 || x == length - 1;
+                boolean yEdge = y == 0 || y == length - 1;
+                if (xEdge && yEdge) {
+                    corners |= bit;
+                } else if (xEdge) {
+                    goalMask[Board.WHITE] |= bit;
+                    if (x == 0) {
+                        startGoalMask[Board.WHITE] |= bit;
+                    } else {
+                        endGoalMask[Board.WHITE] |= bit;
+                    }
+                } else if (yEdge) {
+                    goalMask[Board.BLACK] |= bit;
+                    if (y == 0) {
+                        startGoalMask[Board.BLACK] |= bit;
+                    } else {
+                        endGoalMask[Board.BLACK] |= bit;
+                    }
+                }
+            }
+        }
+        boardMask = all;
+        neighbors = NEIGHBORS[length];
+        rays = RAYS[length];
+        cornerMask = corners;
+        addMask[Board.WHITE] = all & ~corners & ~goalMask[Board.BLACK];
+        addMask[Board.BLACK] = all & ~corners & ~goalMask[Board.WHITE];
+    }
+
+    /**
+     * Create a copy of board b.
+     */
+    BitBoard(BitBoard b) {
+        this(b.length);
+        copyFrom(b);
+    }
+
+    /**
+     * Makes this board a copy of board b, which must have the same length,
+     * without allocating: for boards reused by many playouts.
+     */
+    void copyFrom(BitBoard b) {
+        if (b.length != length) {
+            throw new IllegalArgumentException("Cannot copy a board of length " + b.length + " into one of length " + length);
+        }
+        chips[Board.BLACK] = b.chips[Board.BLACK];
+        chips[Board.WHITE] = b.chips[Board.WHITE];
+        System.arraycopy(b.links, 0, links, 0, links.length);
+        connections[Board.BLACK] = b.connections[Board.BLACK];
+        connections[Board.WHITE] = b.connections[Board.WHITE];
+        blocked[Board.BLACK] = b.blocked[Board.BLACK];
+        blocked[Board.WHITE] = b.blocked[Board.WHITE];
+        numMoves = b.numMoves;
+        nextPlayer = b.nextPlayer;
+        key = b.key;
+    }
+
+    /* ============================== SQUARES ===================================*/
+
+    /**
+     * Returns the square index of position (x, y).
+     */
+    static int square(int x, int y) {
+        return (y << 3) | x;
+    }
+
+    /**
+     * Returns the bit of position (x, y).
+     */
+    static long bit(int x, int y) {
+        return 1L << square(x, y);
+    }
+
+    static int squareX(int s) {
+        return s & 7;
+    }
+
+    static int squareY(int s) {
+        return s >>> 3;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    boolean inBound(int x, int y) {
+        return inBound(x, y, length);
+    }
+
+    private static boolean inBound(int x, int y, int length) {
+        return x >= 0 && x < length && y >= 0 && y < length;
+    }
+
+    /**
+     * Returns the color of the chip at (x, y), or EMPTY.
+     */
+    int getColor(int x, int y) {
+        long b = bit(x, y);
+        if ((chips[Board.WHITE] & b) != 0) {
+            return Board.WHITE;
+        }
+        if ((chips[Board.BLACK] & b) != 0) {
+            return Board.BLACK;
+        }
+        return Board.EMPTY;
+    }
+
+    /**
+     * Returns the bitboard of chips connected to the chip on square s.
+     */
+    long links(int s) {
+        return links[s];
+    }
+
+    /**
+     * Returns the bitboard of player's chips.
+     */
+    long chips(int player) {
+        return chips[player];
+    }
+
+    long occupied() {
+        return chips[Board.BLACK] | chips[Board.WHITE];
+    }
+
+    long empty() {
+        return boardMask & ~occupied();
+    }
+
+    long cornerMask() {
+        return cornerMask;
+    }
+
+    long goalMask(int player) {
+        return goalMask[player];
+    }
+
+    long startGoalMask(int player) {
+        return startGoalMask[player];
+    }
+
+    long endGoalMask(int player) {
+        return endGoalMask[player];
+    }
+
+    /**
+     * Returns the squares player may ever put a chip on: all but the corners
+     * and the other player's goals.
+     */
+    long addMask(int player) {
+        return addMask[player];
+    }
+
+    int getNumMoves() {
+        return numMoves;
+    }
+
+    int getNextPlayer() {
+        return nextPlayer;
+    }
+
+    /**
+     * Returns the Zobrist key of the chips and the player to move.
+     */
+    long getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the Zobrist key of the chips alone, the same whoever is to
+     * move, for results such as wins that depend only on the chips.
+     */
+    long getChipKey() {
+        return nextPlayer == Board.BLACK ? key ^ ZOBRIST_BLACK_TO_MOVE : key;
+    }
+
+    private void setNextPlayer(int player) {
+        if (player != nextPlayer) {
+            key ^= ZOBRIST_BLACK_TO_MOVE;
+            nextPlayer = player;
+        }
+    }
+
+    /**
+     * Puts a chip of the given color at (x, y) without counting a move.
+     * EMPTY clears the square.
+     */
+    void setColor(int x, int y, int color) {
+        int s = square(x, y);
+        if ((occupied() & (1L << s)) != 0) {
+            lift(s);
+        }
+        if (color != Board.EMPTY) {
+            place(s, color);
+        }
+    }
+
+    /**
+     * Puts a chip of the given color on the empty square s, cutting the
+     * connections that pass through s and connecting s to the chips it sees.
+     */
+    private void place(int s, int color) {
+        for (int d = 0; d < 4; d++) {
+            int a = firstChip(s, d);
+            int b = firstChip(s, 7 - d);
+            if (a >= 0 && b >= 0) {
+                if (colorAt(a) == colorAt(b)) {
+                    links[a] &= ~(1L << b);
+                    links[b] &= ~(1L << a);
+                    connections[colorAt(a)] -= 2;
+                } else {
+                    blocked[Board.BLACK]--;
+                    blocked[Board.WHITE]--;
+                }
+            }
+            if (a >= 0) {
+                see(s, a, color);
+            }
+            if (b >= 0) {
+                see(s, b, color);
+            }
+        }
+        chips[color] |= 1L << s;
+        key ^= ZOBRIST[color][s];
+    }
+
+    /**
+     * Removes the chip on square s, disconnecting it and reconnecting the
+     * chips on either side of it.
+     */
+    private void lift(int s) {
+        int color = colorAt(s);
+        chips[color] &= ~(1L << s);
+        key ^= ZOBRIST[color][s];
+        connections[color] -= 2 * Long.bitCount(links[s]);
+        links[s] = 0;
+        for (int d = 0; d < 4; d++) {
+            int a = firstChip(s, d);
+            int b = firstChip(s, 7 - d);
+            if (a >= 0) {
+                links[a] &= ~(1L << s);
+                if (colorAt(a) != color) {
+                    blocked[Board.BLACK]--;
+                    blocked[Board.WHITE]--;
+                }
+            }
+            if (b >= 0) {
+                links[b] &= ~(1L << s);
+                if (colorAt(b) != color) {
+                    blocked[Board.BLACK]--;
+                    blocked[Board.WHITE]--;
+                }
+            }
+            if (a >= 0 && b >= 0) {
+                if (colorAt(a) == colorAt(b)) {
+                    links[a] |= 1L << b;
+                    links[b] |= 1L << a;
+                    connections[colorAt(a)] += 2;
+                } else {
+                    blocked[Board.BLACK]++;
+                    blocked[Board.WHITE]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records that a chip of color just put on s and the chip on a see each other.
+     */
+    private void see(int s, int a, int color) {
+        if (colorAt(a) == color) {
+            links[a] |= 1L << s;
+            links[s] |= 1L << a;
+            connections[color] += 2;
+        } else {
+            blocked[Board.BLACK]++;
+            blocked[Board.WHITE]++;
+        }
+    }
+
+    /**
+     * Returns the color of the chip on square s, or EMPTY.
+     */
+    private int colorAt(int s) {
+        if ((chips[Board.WHITE] & (1L << s)) != 0) {
+            return Board.WHITE;
+        }
+        if ((chips[Board.BLACK] & (1L << s)) != 0) {
+            return Board.BLACK;
+        }
+        return Board.EMPTY;
+    }
+
+    /* ============================== GAME OPERATION MODULE ===================================*/
+
+    /**
+     * make Move m if it is valid, and switch to the next player
+     *
+     * @return true if it makes move, else false
+     */
+    boolean makeMove(Move m, int player) {
+        if (m.moveKind == Move.QUIT) {
+            return true;
+        }
+        if (!isValidMove(m, player)) {
+            return false;
+        }
+        make(moveCode(m), player);
+        return true;
+    }
+
+    /**
+     * Undo the Move m made by player, and give the turn back to player
+     */
+    void undoMove(Move m, int player) {
+        if (m.moveKind == Move.QUIT) {
+            return;
+        }
+        unmake(moveCode(m), player);
+    }
+
+    /**
+     * Makes the packed move, which must be valid, and switches to the next player
+     */
+    void make(int move, int player) {
+        if (moveKind(move) == Move.STEP) {
+            lift(moveFrom(move));
+        }
+        place(moveTo(move), player);
+        setNextPlayer(Board.otherPlayer(player));
+        numMoves++;
+    }
+
+    /**
+     * Undoes the packed move made by player, and gives the turn back to player
+     */
+    void unmake(int move, int player) {
+        lift(moveTo(move));
+        if (moveKind(move) == Move.STEP) {
+            place(moveFrom(move), player);
+        }
+        setNextPlayer(player);
+        numMoves--;
+    }
+
+    /**
+     * Gives the turn to the other player without moving, for null-move
+     * probes: not a legal move in Network, so it is not counted.
+     */
+    void pass(int player) {
+        setNextPlayer(Board.otherPlayer(player));
+    }
+
+    /**
+     * Undoes pass(player), giving the turn back to player.
+     */
+    void unpass(int player) {
+        setNextPlayer(player);
+    }
+
+    /* ============================== MOVE ENCODING ===================================*/
+
+    /**
+     * Packs a move into an int: kind << 12 | from square << 6 | to square.
+     * QUIT packs to 0.
+     */
+    static int moveCode(Move m) {
+        if (m.moveKind == Move.QUIT) {
+            return 0;
+        }
+        int from = m.moveKind == Move.STEP ? square(m.x2, m.y2) : 0;
+        return (m.moveKind << 12) | (from << 6) | square(m.x1, m.y1);
+    }
+
+    static int addMove(int to) {
+        return (Move.ADD << 12) | to;
+    }
+
+    static int stepMove(int from, int to) {
+        return (Move.STEP << 12) | (from << 6) | to;
+    }
+
+    static int moveKind(int move) {
+        return move >>> 12;
+    }
+
+    static int moveFrom(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    static int moveTo(int move) {
+        return move & 63;
+    }
+
+    /**
+     * Unpacks a move packed by moveCode.
+     */
+    static Move toMove(int code) {
+        int to = moveTo(code);
+        int from = moveFrom(code);
+        if (moveKind(code) == Move.ADD) {
+            return new Move(squareX(to), squareY(to));
+        } else if (moveKind(code) == Move.STEP) {
+            return new Move(squareX(to), squareY(to), squareX(from), squareY(from));
+        }
+        return new Move();
+    }
+
+    /* ============================== SYMMETRIES ===================================*/
+
+    // Symmetries of the 8*8 board.  The first four keep every goal area a
+    // goal area of the same color: IDENTITY, MIRROR_X (x -> 7 - x), MIRROR_Y
+    // (y -> 7 - y) and ROTATE_180, both mirrors; each is its own inverse.
+    // Transposing (x <-> y) turns black's goal areas into white's and back,
+    // so together with swapping the colors of all chips and the player to
+    // move it is a symmetry too: COLOR_SWAP | m transposes, swaps colors and
+    // then applies mirror m.  A position and its image under any of the
+    // eight are the same game with the roles renamed.
+    static final int IDENTITY = 0;
+    static final int MIRROR_X = 1;
+    static final int MIRROR_Y = 2;
+    static final int ROTATE_180 = 3;
+    static final int COLOR_SWAP = 4;
+    static final int SYMMETRIES = 8;
+
+    // Inverse of each symmetry; transposing turns MIRROR_X into MIRROR_Y
+    private static final int[] INVERSE = {0, 1, 2, 3, 4, 6, 5, 7};
+
+    /**
+     * Returns the symmetry that undoes symmetry t.
+     */
+    static int inverseTransform(int t) {
+        return INVERSE[t];
+    }
+
+    /**
+     * Returns the color player is mapped to by symmetry t.
+     */
+    static int transformPlayer(int player, int t) {
+        return (t & COLOR_SWAP) != 0 ? Board.otherPlayer(player) : player;
+    }
+
+    /**
+     * Returns the square s is mapped to by symmetry t.
+     */
+    static int transformSquare(int s, int t) {
+        if ((t & COLOR_SWAP) != 0) {
+            s = ((s & 7) << 3) | (s >>> 3);
+        }
+        switch (t & ROTATE_180) {
+            case MIRROR_X:
+                return s ^ 7;
+            case MIRROR_Y:
+                return s ^ 56;
+            case ROTATE_180:
+                return s ^ 63;
+            default:
+                return s;
+        }
+    }
+
+    /**
+     * Returns the mask of the squares of mask b mapped by symmetry t.
+     */
+    static long transformMask(long b, int t) {
+        if ((t & COLOR_SWAP) != 0) {
+            long d = 0x0f0f0f0f00000000L & (b ^ (b << 28));
+            b ^= d ^ (d >>> 28);
+            d = 0x3333000033330000L & (b ^ (b << 14));
+            b ^= d ^ (d >>> 14);
+            d = 0x5500550055005500L & (b ^ (b << 7));
+            b ^= d ^ (d >>> 7);
+        }
+        switch (t & ROTATE_180) {
+            case MIRROR_X:
+                b = ((b >>> 1) & 0x5555555555555555L) | ((b & 0x5555555555555555L) << 1);
+                b = ((b >>> 2) & 0x3333333333333333L) | ((b & 0x3333333333333333L) << 2);
+                return ((b >>> 4) & 0x0f0f0f0f0f0f0f0fL) | ((b & 0x0f0f0f0f0f0f0f0fL) << 4);
+            case MIRROR_Y:
+                return Long.reverseBytes(b);
+            case ROTATE_180:
+                return Long.reverse(b);
+            default:
+                return b;
+        }
+    }
+
+    /**
+     * Returns the packed move mapped by symmetry t.  A move of player maps
+     * to a move of transformPlayer(player, t).
+     */
+    static int transformMove(int move, int t) {
+        if (move == 0) {
+            return 0;
+        }
+        int to = transformSquare(moveTo(move), t);
+        return moveKind(move) == Move.STEP ? stepMove(transformSquare(moveFrom(move), t), to) : addMove(to);
+    }
+
+    /**
+     * Returns the symmetry that maps this board and the player to move to
+     * their canonical form: of the boards it maps to, the one with white to
+     * move whose black chips, then white chips, form the smallest mask, or
+     * with black to move if no image has white to move.  Boards that are
+     * symmetric to each other have the same canonical form.  Only 8*8
+     * boards are folded; other boards are their own canonical form.
+     */
+    int canonicalTransform() {
+        if (length != 8) {
+            return IDENTITY;
+        }
+        int best = IDENTITY;
+        int bestPlayer = nextPlayer;
+        long bestBlack = chips[Board.BLACK], bestWhite = chips[Board.WHITE];
+        for (int t = 1; t < SYMMETRIES; t++) {
+            int player = transformPlayer(nextPlayer, t);
+            long black = transformMask(chips[transformPlayer(Board.BLACK, t)], t);
+            long white = transformMask(chips[transformPlayer(Board.WHITE, t)], t);
+            int c = bestPlayer - player; // WHITE first
+            if (c == 0) {
+                c = Long.compareUnsigned(black, bestBlack);
+            }
+            if (c < 0 || (c == 0 && Long.compareUnsigned(white, bestWhite) < 0)) {
+                best = t;
+                bestPlayer = player;
+                bestBlack = black;
+                bestWhite = white;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the Zobrist key of this board mapped by symmetry t, the key
+     * transformed(t).getKey() would return.
+     */
+    long transformedKey(int t) {
+        if (t == IDENTITY) {
+            return key;
+        }
+        long k = transformPlayer(nextPlayer, t) == Board.BLACK ? ZOBRIST_BLACK_TO_MOVE : 0;
+        for (int color = Board.BLACK; color <= Board.WHITE; color++) {
+            long[] zobrist = ZOBRIST[transformPlayer(color, t)];
+            long own = transformMask(chips[color], t);
+            while (own != 0) {
+                k ^= zobrist[Long.numberOfTrailingZeros(own)];
+                own &= own - 1;
+            }
+        }
+        return k;
+    }
+
+    /**
+     * Returns the Zobrist key of this board's canonical form, the same for all boards symmetric to it.
+     */
+    long getCanonicalKey() {
+        return transformedKey(canonicalTransform());
+    }
+
+    /**
+     * Returns a new board holding this board's position mapped by symmetry
+     * t, with the same number of moves made.
+     */
+    BitBoard transformed(int t) {
+        if (t != IDENTITY && length != 8) {
+            throw new IllegalArgumentException("Only 8*8 boards have symmetries: " + length);
+        }
+        BitBoard b = new BitBoard(length);
+        for (int color = Board.BLACK; color <= Board.WHITE; color++) {
+            long own = transformMask(chips[color], t);
+            while (own != 0) {
+                int s = Long.numberOfTrailingZeros(own);
+                b.place(s, transformPlayer(color, t));
+                own &= own - 1;
+            }
+        }
+        b.numMoves = numMoves;
+        b.setNextPlayer(transformPlayer(nextPlayer, t));
+        return b;
+    }
+
+    /* ============================== VERIFICATION MODULE ===================================*/
+
+    /**
+     * Check if it is valid to operate the move
+     */
+    boolean isValidMove(Move m, int player) {
+        if (m.moveKind == Move.QUIT) {
+            return true;
+        }
+        if (!inBound(m.x1, m.y1) || (m.moveKind == Move.STEP && !inBound(m.x2, m.y2))) {
+            return false;
+        }
+        if (m.moveKind != Move.ADD && m.moveKind != Move.STEP) {
+            return false;
+        }
+        return isValidMove(moveCode(m), player);
+    }
+
+    /**
+     * Check if it is valid for player to make the packed move
+     */
+    boolean isValidMove(int move, int player) {
+        int kind = moveKind(move);
+        // can only step after 20 moves and only add <= 20 moves
+        if ((kind == Move.STEP && numMoves < 20) || (kind == Move.ADD && numMoves >= 20)) {
+            return false;
+        }
+        long own = chips[player];
+        if (kind == Move.STEP) {
+            long from = 1L << moveFrom(move);
+            if ((own & from) == 0 || moveFrom(move) == moveTo(move)) {
+                return false;
+            }
+            own &= ~from; // the stepping chip no longer counts towards clusters
+        } else if (kind != Move.ADD) {
+            return false;
+        }
+        int s = moveTo(move);
+        return (empty() & addMask[player] & (1L << s)) != 0 && !isCluster(s, own);
+    }
+
+    /**
+     * Check if adding a chip at s to own makes a cluster (three adjacent chips of the same color)
+     */
+    boolean isCluster(int s, long own) {
+        long adjacent = neighbors[s] & own;
+        if (adjacent == 0) {
+            return false;
+        }
+        if (Long.bitCount(adjacent) > 1) {
+            return true; // form a cluster centered at s
+        }
+        int t = Long.numberOfTrailingZeros(adjacent);
+        return (neighbors[t] & own & ~(1L << s)) != 0; // form a cluster centered at t
+    }
+
+    /**
+     * Returns the empty squares where a chip added to own would make a
+     * cluster: squares next to two chips of own, and squares next to a chip
+     * of own that already has a neighbor in own.
+     */
+    static long clusterMask(long own) {
+        long east = (own & NOT_COLUMN_7) << 1;
+        long west = (own & NOT_COLUMN_0) >>> 1;
+        // one: squares next to at least one chip of own, two: next to at least two
+        long one = east;
+        long two = one & west;
+        one |= west;
+        two |= one & (own << 8);
+        one |= own << 8;
+        two |= one & (own >>> 8);
+        one |= own >>> 8;
+        two |= one & (east << 8);
+        one |= east << 8;
+        two |= one & (east >>> 8);
+        one |= east >>> 8;
+        two |= one & (west << 8);
+        one |= west << 8;
+        two |= one & (west >>> 8);
+        one |= west >>> 8;
+        return two | neighborsOf(own & one);
+    }
+
+    /**
+     * Returns the squares next to any square of b.
+     */
+    static long neighborsOf(long b) {
+        long sides = ((b & NOT_COLUMN_7) << 1) | ((b & NOT_COLUMN_0) >>> 1);
+        long row = b | sides;
+        return sides | (row << 8) | (row >>> 8);
+    }
+
+    /**
+     * Writes player's valid moves, packed, into moves starting at index 0,
+     * and returns how many there are.  Allocates nothing.
+     * @param moves
+     *      buffer of at least MAX_MOVES ints
+     */
+    int generateMoves(int player, int[] moves) {
+        int n = 0;
+        long targets = empty() & addMask[player];
+        long own = chips[player];
+        if (numMoves < 20) {
+            long ok = targets & ~clusterMask(own);
+            while (ok != 0) {
+                int s = Long.numberOfTrailingZeros(ok);
+                ok &= ok - 1;
+                moves[n++] = addMove(s);
+            }
+        } else {
+            long froms = own;
+            while (froms != 0) {
+                int from = Long.numberOfTrailingZeros(froms);
+                froms &= froms - 1;
+                long ok = targets & ~clusterMask(own & ~(1L << from));
+                while (ok != 0) {
+                    int s = Long.numberOfTrailingZeros(ok);
+                    ok &= ok - 1;
+                    moves[n++] = stepMove(from, s);
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Replaces the contents of moves with player's valid moves, packed,
+     * reusing moves' storage.
+     */
+    void generateMoves(int player, IntList moves) {
+        if (moveScratch == null) {
+            moveScratch = new int[MAX_MOVES];
+        }
+        moves.clear();
+        moves.addAll(moveScratch, generateMoves(player, moveScratch));
+    }
+
+    /**
+     * Return a Dlist of valid moves
+     */
+    DList validMoves(int player) {
+        DList validMoves = new DList();
+        IntList moves = new IntList(MAX_MOVES);
+        generateMoves(player, moves);
+        for (int i = 0; i < moves.length(); i++) {
+            validMoves.insertBack(toMove(moves.get(i)));
+        }
+        return validMoves;
+    }
+
+    /* ============================== EVALUATION MODULE ===================================*/
+
+    /**
+     * Evaluates a board on a scale from -1 to 1, the same way as
+     * Board.boardEvaluator: -1 means black has a winning network, 1 means
+     * white has one, otherwise the connection balance scaled by .99.
+     */
+    double evaluate() {
+        if (isWin(Board.WHITE)) {
+            return 1;
+        }
+        if (isWin(Board.BLACK)) {
+            return -1;
+        }
+        return evaluateConnections();
+    }
+
+    /**
+     * Evaluates a board with no network on a scale from -.99 to .99: the
+     * balance of white's and black's connections.
+     */
+    double evaluateConnections() {
+        int whiteScore = countConnections(Board.WHITE);
+        int blackScore = countConnections(Board.BLACK);
+        if (whiteScore == 0 && blackScore == 0) {
+            return 0;
+        }
+        return .99 * ((double) (whiteScore - blackScore)) / ((double) (whiteScore + blackScore));
+    }
+
+    /**
+     * Estimates how much a valid packed move helps player, for move ordering:
+     * the connections the moved chip makes at its new square, plus the
+     * opponent's connections it cuts, minus those it gives up by leaving its
+     * old square.  Cheaper than making the move and evaluating.
+     */
+    int moveGain(int move, int player) {
+        long occ = occupied();
+        long own = chips[player];
+        int gain = 0;
+        if (moveKind(move) == Move.STEP) {
+            int from = moveFrom(move);
+            occ &= ~(1L << from);
+            own &= ~(1L << from);
+            gain -= Long.bitCount(links[from]);
+        }
+        int to = moveTo(move);
+        for (int d = 0; d < 4; d++) {
+            int a = firstChip(to, d, occ);
+            int b = firstChip(to, 7 - d, occ);
+            boolean ownA = a >= 0 && (own & (1L << a)) != 0;
+            boolean ownB = b >= 0 && (own & (1L << b)) != 0;
+            if (ownA) {
+                gain++;
+            }
+            if (ownB) {
+                gain++;
+            }
+            if (a >= 0 && b >= 0 && !ownA && !ownB) {
+                gain++; // blocks an opponent connection
+            }
+        }
+        return gain;
+    }
+
+    /**
+     * Returns the number of (chip, direction) pairs of player that see a
+     * chip of the same color, as counted by Board.findAllConnections.
+     */
+    int countConnections(int player) {
+        return connections[player];
+    }
+
+    /**
+     * Returns the number of (chip, direction) pairs of player whose first
+     * chip seen is the opponent's.
+     */
+    int countBlocked(int player) {
+        return blocked[player];
+    }
+
+    /**
+     * Returns the chips of player linked to seeds, directly or through other
+     * chips, seeds included.  The turning rule of networks is ignored.
+     */
+    long linkedTo(long seeds, int player) {
+        long reached = seeds & chips[player];
+        long frontier = reached;
+        while (frontier != 0) {
+            int s = Long.numberOfTrailingZeros(frontier);
+            frontier &= frontier - 1;
+            long next = links[s] & ~reached;
+            reached |= next;
+            frontier |= next;
+        }
+        return reached;
+    }
+
+    /**
+     * Returns the square of the first chip seen from square s in direction
+     * Board.DIRECTIONS[d], or -1 if there is none.
+     */
+    private int firstChip(int s, int d) {
+        return firstChip(s, d, occupied());
+    }
+
+    /**
+     * Returns the square of the first chip of occ seen from square s in
+     * direction Board.DIRECTIONS[d], or -1 if there is none.
+     */
+    int firstChip(int s, int d, long occ) {
+        long seen = rays[d][s] & occ;
+        if (seen == 0) {
+            return -1;
+        }
+        return d < 4 ? 63 - Long.numberOfLeadingZeros(seen) : Long.numberOfTrailingZeros(seen);
+    }
+
+    /**
+     * Returns the squares seen from square s in direction Board.DIRECTIONS[d]
+     * up to the board's edge, chips or no chips.
+     */
+    long ray(int s, int d) {
+        return rays[d][s];
+    }
+
+    /**
+     * Returns the index into Board.DIRECTIONS of the direction from square s
+     * to square t, which must lie on a common line.
+     */
+    static int direction(int s, int t) {
+        return directionOf(Integer.signum(squareX(t) - squareX(s)), Integer.signum(squareY(t) - squareY(s)));
+    }
+
+    /**
+     * Returns the index into Board.DIRECTIONS of the direction (dx, dy),
+     * each -1, 0 or 1 and not both 0.
+     */
+    static int directionOf(int dx, int dy) {
+        int d = (dy + 1) * 3 + (dx + 1);
+        return d > 4 ? d - 1 : d;
+    }
+
+    /* ============================== NETWORK IDENTIFIER MODULE ===================================*/
+
+    /**
+     * check if player has a network: a path of at least 6 chips from its start
+     * goal to its end goal, turning at every chip, with no other chip in either goal.
+     *
+     * The connection graph is already up to date, so this first checks that the
+     * start goal reaches the end goal through at least 6 chips at all, and only
+     * then searches paths, stopping at the first network found.
+     */
+    boolean isWin(int player) {
+        long own = chips[player];
+        long starts = own & startGoalMask[player];
+        long ends = own & endGoalMask[player];
+        if (starts == 0 || ends == 0 || Long.bitCount(own) < 6) {
+            return false;
+        }
+
+        // chips reachable from the start goal, ignoring the turning rule
+        long reached = starts;
+        long frontier = starts;
+        long passable = own & ~startGoalMask[player];
+        while (frontier != 0) {
+            int s = Long.numberOfTrailingZeros(frontier);
+            frontier &= frontier - 1;
+            if ((ends & (1L << s)) != 0) {
+                continue; // a network stops at its end goal chip
+            }
+            long next = links[s] & passable & ~reached;
+            reached |= next;
+            frontier |= next;
+        }
+        if ((reached & ends) == 0 || Long.bitCount(reached) < 6) {
+            return false;
+        }
+
+        while (starts != 0) {
+            int s = Long.numberOfTrailingZeros(starts);
+            starts &= starts - 1;
+            if (findNetwork(s, player, reached, 1L << s, 1, -1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extends the path ending at square s, depth first.
+     * @param allowed
+     *      chips the path may still use
+     * @param visited
+     *      squares on the current path
+     * @param pathLength
+     *      number of chips on the current path
+     * @param prevDirection
+     *      index into Board.DIRECTIONS of the last edge, or -1 at the start
+     * @return true if the path can be extended into a network, whose lines
+     *      are then added to networkLines
+     */
+    private boolean findNetwork(int s, int player, long allowed, long visited, int pathLength, int prevDirection) {
+        long next = links[s] & allowed & ~visited & ~startGoalMask[player];
+        if (pathLength < 5) {
+            next &= ~endGoalMask[player]; // too short to finish yet
+        }
+        while (next != 0) {
+            int t = Long.numberOfTrailingZeros(next);
+            next &= next - 1;
+            int d = direction(s, t);
+            if (d == prevDirection) {
+                continue; // cannot pass through a chip without turning
+            }
+            if ((endGoalMask[player] & (1L << t)) != 0
+                    || findNetwork(t, player, allowed, visited | (1L << t), pathLength + 1, d)) {
+                networkLines |= rays[d][s] & ~rays[d][t] & ~(1L << t);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* ============================== THREAT DETECTOR MODULE ===================================*/
+
+    /**
+     * Writes player's valid moves that complete a network through the moved
+     * chip into moves, packed, and returns how many there are.  Player must
+     * not have a network yet.
+     *
+     * The chips of such a network but the moved one are linked to a goal
+     * even before the move, turning rule ignored, so only moves to squares
+     * that see chips linked to both goals (or lie in a goal) are made and
+     * checked with isWin.  A step also shows the chips behind its old square,
+     * whose lines are added for it.  In most positions no square passes, and
+     * this costs a few mask operations.
+     * @param moves
+     *      buffer of at least MAX_MOVES ints
+     * @param max
+     *      number of moves after which to stop looking, 1 to only ask whether there is one
+     */
+    int winningMoves(int player, int[] moves, int max) {
+        long own = chips[player];
+        boolean adding = numMoves < 20;
+        if ((own & goalMask[player]) == 0 || Long.bitCount(own) < (adding ? 5 : 6)) {
+            return 0; // a move reaches at most one goal, and a network has 6 chips
+        }
+        long starts = linkedTo(startGoalMask[player], player);
+        long ends = linkedTo(endGoalMask[player], player);
+        if (Long.bitCount(starts | ends) < 5) {
+            return 0;
+        }
+        long open = empty();
+        long startSide = visibleFrom(starts, open) | startGoalMask[player];
+        long endSide = visibleFrom(ends, open) | endGoalMask[player];
+        long targets = open & addMask[player];
+        int n = 0;
+        if (adding) {
+            long ok = targets & startSide & endSide & ~clusterMask(own);
+            while (ok != 0 && n < max) {
+                int s = Long.numberOfTrailingZeros(ok);
+                ok &= ok - 1;
+                if (canTurn(s, player, starts, ends, occupied())) {
+                    n = addIfWinning(addMove(s), player, moves, n);
+                }
+            }
+            return n;
+        }
+        long occ = occupied();
+        long froms = own;
+        while (froms != 0 && n < max) {
+            int from = Long.numberOfTrailingZeros(froms);
+            froms &= froms - 1;
+            long fromStart = startSide;
+            long fromEnd = endSide;
+            for (int d = 0; d < 8; d++) {
+                // lifting the chip shows the chip seen from its square in direction d to the squares behind it
+                int c = firstChip(from, d, occ);
+                if (c >= 0) {
+                    long behind = visibleRay(from, 7 - d, occ);
+                    if ((starts & (1L << c)) != 0) {
+                        fromStart |= behind;
+                    }
+                    if ((ends & (1L << c)) != 0) {
+                        fromEnd |= behind;
+                    }
+                }
+            }
+            long ok = targets & fromStart & fromEnd & ~clusterMask(own & ~(1L << from));
+            long fromOcc = occ & ~(1L << from);
+            while (ok != 0 && n < max) {
+                int s = Long.numberOfTrailingZeros(ok);
+                ok &= ok - 1;
+                if (canTurn(s, player, starts, ends, fromOcc)) {
+                    n = addIfWinning(stepMove(from, s), player, moves, n);
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns false if a chip of player put on square s, with occ the chips
+     * after the move, cannot be part of a network: one not in a goal must
+     * see a chip of starts and one of ends in two directions that are
+     * neither the same nor opposite, as a network turns at every chip.
+     */
+    private boolean canTurn(int s, int player, long starts, long ends, long occ) {
+        int startDirections = 0; // bit d: the chip seen in direction d is in starts
+        int endDirections = 0;
+        long own = chips[player] & occ;
+        for (int d = 0; d < 8; d++) {
+            int c = firstChip(s, d, occ);
+            if (c >= 0 && (own & (1L << c)) != 0) {
+                if ((starts & (1L << c)) != 0) {
+                    startDirections |= 1 << d;
+                }
+                if ((ends & (1L << c)) != 0) {
+                    endDirections |= 1 << d;
+                }
+            }
+        }
+        long bit = 1L << s;
+        if ((startGoalMask[player] & bit) != 0) {
+            return endDirections != 0;
+        }
+        if ((endGoalMask[player] & bit) != 0) {
+            return startDirections != 0;
+        }
+        for (int d = 0; d < 8; d++) {
+            if ((startDirections & (1 << d)) != 0 && (endDirections & ~(1 << d) & ~(1 << (7 - d))) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes move at moves[n] if it gives player a network, and returns the
+     * new number of moves.
+     */
+    private int addIfWinning(int move, int player, int[] moves, int n) {
+        if (winsWith(move, player)) {
+            moves[n++] = move;
+        }
+        return n;
+    }
+
+    /**
+     * Returns true if player has a network after making the valid packed
+     * move.  isWin only reads player's chips and their links, so only those
+     * of the chips next to the move's squares on their lines are changed,
+     * and put back afterwards: much cheaper than make and unmake.
+     */
+    private boolean winsWith(int move, int player) {
+        long own = chips[player];
+        long occ = occupied();
+        int saved = 0;
+        if (moveKind(move) == Move.STEP) {
+            int from = moveFrom(move);
+            occ &= ~(1L << from);
+            own &= ~(1L << from);
+            for (int d = 0; d < 4; d++) {
+                int a = firstChip(from, d, occ);
+                int b = firstChip(from, 7 - d, occ);
+                boolean ownA = a >= 0 && (own & (1L << a)) != 0;
+                boolean ownB = b >= 0 && (own & (1L << b)) != 0;
+                if (ownA) {
+                    trialSquares[saved] = a;
+                    trialLinks[saved++] = links[a];
+                    links[a] = (links[a] & ~(1L << from)) | (ownB ? 1L << b : 0);
+                }
+                if (ownB) {
+                    trialSquares[saved] = b;
+                    trialLinks[saved++] = links[b];
+                    links[b] = (links[b] & ~(1L << from)) | (ownA ? 1L << a : 0);
+                }
+            }
+        }
+        int to = moveTo(move);
+        long toLinks = 0;
+        for (int d = 0; d < 4; d++) {
+            int a = firstChip(to, d, occ);
+            int b = firstChip(to, 7 - d, occ);
+            boolean ownA = a >= 0 && (own & (1L << a)) != 0;
+            boolean ownB = b >= 0 && (own & (1L << b)) != 0;
+            if (ownA) {
+                trialSquares[saved] = a;
+                trialLinks[saved++] = links[a];
+                links[a] = (links[a] & ~(ownB ? 1L << b : 0)) | (1L << to);
+                toLinks |= 1L << a;
+            }
+            if (ownB) {
+                trialSquares[saved] = b;
+                trialLinks[saved++] = links[b];
+                links[b] = (links[b] & ~(ownA ? 1L << a : 0)) | (1L << to);
+                toLinks |= 1L << b;
+            }
+        }
+        long oldChips = chips[player];
+        chips[player] = own | (1L << to);
+        links[to] = toLinks;
+        boolean won = isWin(player);
+        links[to] = 0;
+        chips[player] = oldChips;
+        while (saved > 0) {
+            saved--;
+            links[trialSquares[saved]] = trialLinks[saved];
+        }
+        return won;
+    }
+
+    /**
+     * Returns a move of player that completes its network and not the other
+     * player's, packed, or 0 if there is none.  Player must not have a
+     * network yet.
+     * @param buffer
+     *      buffer of at least MAX_MOVES ints, overwritten
+     */
+    int winningMove(int player, int[] buffer) {
+        // the first winning move found almost always does, so the others are only listed if not
+        int n = winningMoves(player, buffer, 1);
+        if (n == 0 || winsAlone(buffer[0], player)) {
+            return n == 0 ? 0 : buffer[0];
+        }
+        n = winningMoves(player, buffer, MAX_MOVES);
+        for (int i = 1; i < n; i++) {
+            if (winsAlone(buffer[i], player)) {
+                return buffer[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns true if the packed move, which completes player's network,
+     * does not complete the other player's too.
+     */
+    private boolean winsAlone(int move, int player) {
+        if (moveKind(move) == Move.ADD) {
+            return true; // an add cannot complete the other player's network
+        }
+        int next = nextPlayer;
+        make(move, player);
+        boolean alone = !isWin(Board.otherPlayer(player));
+        unmake(move, player);
+        setNextPlayer(next); // player need not be the one to move
+        return alone;
+    }
+
+    /**
+     * Writes player's valid moves that may stop the other player from
+     * completing a network with its next move into moves, packed, and
+     * returns how many there are.  After any other move the other player
+     * has a move winning at once, so if there are none player cannot
+     * defend.  Neither player may have a network yet.
+     *
+     * The moves are found from one winning move of the other player: a
+     * chip of player must take its square or cut a line of the network it
+     * completes, or (for a step) link two chips of player through the
+     * square it leaves, so that it completes player's network too.
+     * Player's own winning moves are listed as well, as far as winningMoves
+     * finds them, and so are its steps from between two of its chips on a
+     * line, which may complete a network elsewhere.  Without a winning
+     * move of the other player to go by, every valid move is listed.
+     * @param moves
+     *      buffer of at least MAX_MOVES ints
+     * @param buffer
+     *      another buffer of at least MAX_MOVES ints, overwritten
+     */
+    int defences(int player, int[] moves, int[] buffer) {
+        long toMask = ~0L; // a move to one of these squares or from one of fromMask may defend
+        long fromMask = ~0L;
+        // after player's last add the other player steps, which winningMove would not look for now
+        int threat = numMoves == 19 ? 0 : winningMove(Board.otherPlayer(player), buffer);
+        if (threat != 0) {
+            toMask = blockingSquares(threat, Board.otherPlayer(player));
+            fromMask = 0;
+            long own = chips[player];
+            long occ = occupied();
+            for (long rest = own; rest != 0; rest &= rest - 1) {
+                int s = Long.numberOfTrailingZeros(rest);
+                for (int d = 0; d < 4; d++) {
+                    int c = firstChip(s, d, occ);
+                    int facing = firstChip(s, 7 - d, occ);
+                    if (c >= 0 && facing >= 0 && (own & (1L << c)) != 0 && (own & (1L << facing)) != 0) {
+                        fromMask |= 1L << s;
+                    }
+                }
+            }
+            if (moveKind(threat) == Move.STEP) {
+                int vacated = moveFrom(threat);
+                for (int d = 0; d < 8; d++) {
+                    int c = firstChip(vacated, d, occ);
+                    int facing = firstChip(vacated, 7 - d, occ);
+                    if (c >= 0 && facing >= 0 && (own & (1L << c)) != 0 && (own & (1L << facing)) != 0) {
+                        toMask = ~0L; // the step may complete player's network after any move
+                        fromMask = ~0L;
+                    }
+                    toMask |= visibleRay(vacated, d, occ);
+                    if (c >= 0 && (own & (1L << c)) != 0) {
+                        fromMask |= 1L << c;
+                    }
+                }
+            }
+            int wins = winningMoves(player, buffer, MAX_MOVES);
+            for (int i = 0; i < wins; i++) {
+                toMask |= 1L << moveTo(buffer[i]);
+            }
+        }
+        int count = generateMoves(player, moves);
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if ((toMask & (1L << moveTo(move))) != 0
+                    || moveKind(move) == Move.STEP && (fromMask & (1L << moveFrom(move))) != 0) {
+                moves[n++] = move;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the squares where a chip of the other player stops the valid
+     * packed move completing player's network: the square it goes to, and
+     * the squares on the lines of the network isWin finds after it.  Every
+     * network the move completes must be cut, that one among them.
+     */
+    private long blockingSquares(int move, int player) {
+        int next = nextPlayer;
+        make(move, player);
+        networkLines = 0;
+        boolean won = isWin(player);
+        unmake(move, player);
+        setNextPlayer(next);
+        return won ? networkLines | (1L << moveTo(move)) : ~0L;
+    }
+
+    /**
+     * Returns the empty squares from which a chip of seeds is the first chip
+     * seen in some direction, through the squares of open.
+     */
+    long visibleFrom(long seeds, long open) {
+        long seen = 0;
+        for (int d = 0; d < 8; d++) {
+            long frontier = shift(seeds, d) & open;
+            while (frontier != 0) {
+                seen |= frontier;
+                frontier = shift(frontier, d) & open;
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * Returns the squares from square s in direction Board.DIRECTIONS[d] up
+     * to the first chip of occ, both excluded.
+     */
+    private long visibleRay(int s, int d, long occ) {
+        int c = firstChip(s, d, occ);
+        return c < 0 ? rays[d][s] : rays[d][s] & ~rays[d][c] & ~(1L << c);
+    }
+
+    /**
+     * Returns the squares of b moved one square in direction Board.DIRECTIONS[d],
+     * dropping those that leave the board's columns.
+     */
+    private static long shift(long b, int d) {
+        int dx = Board.DIRECTIONS[d][0];
+        int dy = Board.DIRECTIONS[d][1];
+        if (dx > 0) {
+            b &= NOT_COLUMN_7;
+        } else if (dx < 0) {
+            b &= NOT_COLUMN_0;
+        }
+        int bits = dy * 8 + dx;
+        return bits > 0 ? b << bits : b >>> -bits;
+    }
+
+    /**
+     * Returns a String representation of the board.
+     */
+    public String toString() {
+        String output = "--------------------------------\n";
+        for (int y = 0; y < length; y++) {
+            output += "\n|";
+            for (int x = 0; x < length; x++) {
+                int color = getColor(x, y);
+                if (color == Board.BLACK) {
+                    output += " B |";
+                } else if (color == Board.WHITE) {
+                    output += " W |";
+                } else {
+                    output += "   |";
+                }
+            }
+            output += "\n--------------------------------";
+        }
+        return output;
+    }
+}
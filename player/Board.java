@@ -1,16 +1,23 @@
 package player;
 
-import java.util.Hashtable;
 import list.*;
 
 /** The Board class represent the game board
  *
+ * The position itself lives in a BitBoard, which does moves, validity checks
+ * and move generation with bit operations; Board is a facade over it that
+ * keeps a Piece view of every square for the path-based methods below.
+ *
+ * All state, including whose turn it is, belongs to the instance, so boards
+ * in different threads or games never interfere.  A Board itself is not
+ * thread-safe and should stay confined to one thread.
  */
 public class Board {
-    private Piece[][] pieces;
+    private BitBoard bits;
+    private Piece[][] pieces;//one Piece per square, recolored in place
     private int length;
-    private int numMoves = 0;
-    private static int nextPlayer;//the next player's color, 1 or 0
+    private final IntStack pathStack = new IntStack(64); // squares of the path findPaths is extending
+    private final SquareSet pathSquares = new SquareSet(); // the same squares, for membership tests
 
     // Constants for color, same as Piece class
     public static final int BLACK = 0;
@@ -31,11 +38,10 @@ public class Board {
     /**
      * Create a new square empty board
      * @param length
-     *          length of the board
+     *          length of the board, at most 8
      * */
     public Board(int length){
-        nextPlayer = WHITE;
-        numMoves = 0;
+        bits = new BitBoard(length);
         pieces = new Piece[length][length];
         for (int i = 0; i < length; i++){
             for (int j = 0; j < length; j++){
@@ -44,8 +50,20 @@ public class Board {
         }
 
         this.length = length;
-        System.out.println("Starting the new game...");
+    }
 
+    /**
+     * Create a board holding a copy of bits' position, including the number
+     * of moves made and the player to move.
+     */
+    Board(BitBoard bits){
+        this(bits.getLength());
+        this.bits = new BitBoard(bits);
+        for (int x = 0; x < length; x++) {
+            for (int y = 0; y < length; y++) {
+                pieces[x][y].setColor(bits.getColor(x, y));
+            }
+        }
     }
 
     /**
@@ -55,6 +73,13 @@ public class Board {
         return length;
     }
 
+    /**
+     * Returns the BitBoard holding this board's position.
+     */
+    protected BitBoard getBitBoard(){
+        return bits;
+    }
+
     /**
      * Returns the color or next player
      */
@@ -98,23 +123,7 @@ public class Board {
      * @return this board's evaluation
      */
     public double boardEvaluator() {
-        if (isWin(WHITE)) {
-            return 1;
-        }
-        if (isWin(BLACK)) {
-            return -1;
-        }
-        int whiteScore = 0;
-        int blackScore = 0;
-
-        int[] conn = findAllConnections();
-        whiteScore += conn[0];
-        blackScore += conn[1];
-
-        if (whiteScore == 0 && blackScore == 0) {
-            return 0;
-        }
-        return .99 * ((double) (whiteScore - blackScore)) / ((double) (whiteScore + blackScore));
+        return bits.evaluate(); // connection counts are kept up to date by makeMove and undoMove
     }
 
     /**
@@ -125,31 +134,25 @@ public class Board {
      * @return [# white conections, # black connections]
      */
     protected int[] findAllConnections() {
-        //dictionary respresented by an array of DLists where keys (first entry) are the Piece, and entries are Pieces it's connected to
-        DList[] connDict = new DList[java.lang.Math.min(getNumMoves(), 20)];
-        int dictInd = 0;
+        int whiteTotal = 0, blackTotal = 0;
         for (int i = 0; i < getLength(); i++) {
             for (int j = 0; j < getLength(); j++) {
-                if (inBound(i, j) && getPiece(i, j).getColor() != EMPTY) {
-                    connDict[dictInd] = findPieceConnections(getPiece(i, j));
-                    connDict[dictInd].insertFront(getPiece(i,j));
-                    dictInd++;
+                Piece p = getPiece(i, j);
+                if (p.getColor() == EMPTY) {
+                    continue;
                 }
-            }
-        }
-        int whiteTotal = 0, blackTotal = 0;
-        for (DList conn:connDict) {
-            try {
-                if (((Piece) conn.front().item()).getColor() == WHITE) {
-                    whiteTotal += conn.length()-1;
+                int count = 0;
+                for (int[] direction : DIRECTIONS) {
+                    if (connInDirection(p, direction[0], direction[1]) != null) {
+                        count++;
+                    }
                 }
-                else {
-                    blackTotal += conn.length()-1;
+                if (p.getColor() == WHITE) {
+                    whiteTotal += count;
+                } else {
+                    blackTotal += count;
                 }
             }
-            catch (InvalidNodeException e) {
-                System.out.println("INException in findAllConnections. Shouldn't happen.");
-            }
         }
         int[] counts = {whiteTotal, blackTotal};
         return counts;
@@ -190,16 +193,10 @@ public class Board {
      */
 
     protected Piece connInDirection(Piece p, int xDelt, int yDelt) {
-        int x = p.getX() + xDelt, y = p.getY() + yDelt;
-        while (inBound(x, y)) {
-            if (p.getColor() == getPiece(x, y).getColor()) {
-                return getPiece(x, y);
-            }
-            else if (getPiece(x, y).getColor() != EMPTY) {
-                return null;
-            }
-            x += xDelt;
-            y += yDelt;
+        int s = BitBoard.square(p.getX(), p.getY());
+        int t = bits.firstChip(s, BitBoard.directionOf(xDelt, yDelt), bits.occupied());
+        if (t >= 0 && bits.getColor(BitBoard.squareX(t), BitBoard.squareY(t)) == p.getColor()) {
+            return pieces[BitBoard.squareX(t)][BitBoard.squareY(t)];
         }
         return null;
     }
@@ -216,29 +213,34 @@ public class Board {
      */
     protected DList findEdges(Piece currentPiece, int player){
         DList edges = new DList();
-        if (isInEndGoalArea(currentPiece.getX(), currentPiece.getY(), player)){
+        long squares = findEdges(BitBoard.square(currentPiece.getX(), currentPiece.getY()), player);
+        for (; squares != 0; squares &= squares - 1) {
+            int s = Long.numberOfTrailingZeros(squares);
+            edges.insertBack(pieces[BitBoard.squareX(s)][BitBoard.squareY(s)]);
+        }
+        return edges;
+    }
+
+    /**
+     * Returns the squares of the pieces findEdges(Piece, player) lists for
+     * the piece on square s, as a mask.  Looks along the BitBoard's rays
+     * rather than using its links, so that isWinByPaths checks the links.
+     */
+    private long findEdges(int s, int player){
+        long edges = 0;
+        if (isInEndGoalArea(BitBoard.squareX(s), BitBoard.squareY(s), player)){
             return edges;
         } // reach the end area, no more edges
 
-        for (int[] direction: DIRECTIONS){
-            int step = 1;
-            int x = direction[0]*step + currentPiece.getX();
-            int y = direction[1]*step + currentPiece.getY();
-            while (inBound(x, y)){
-                Piece nextPiece = pieces[x][y];
-                if (nextPiece.getColor() == otherPlayer(player)){break;}// reach opponent's chip, change directions
-                else if (nextPiece.getColor() == player){ //run into a piece with the same color
-                    if (!isInStartGoalArea(x, y, player)) {
-                        edges.insertBack(nextPiece);
-                    }
-                    break;
-                }
-                step++; // increase step, continue searching
-                x = direction[0]*step + currentPiece.getX();
-                y = direction[1]*step + currentPiece.getY();
+        long occupied = bits.occupied();
+        long own = bits.chips(player) & ~bits.startGoalMask(player);
+        for (int d = 0; d < DIRECTIONS.length; d++){
+            int t = bits.firstChip(s, d, occupied); // the nearest chip, opponent's chips blocking
+            if (t >= 0){
+                edges |= 1L << t;
             }
         }
-        return edges;
+        return edges & own;
     }
 
     /**
@@ -288,103 +290,79 @@ public class Board {
     }
 
     /**
-     * A recursive function to store all paths from 'from' to 'to'.
-     *     visited keeps track of vertices in current path.
-     *     path stores actual vertices
-     *     Return a Dlist of all paths/connections starting at currentPiece
-     * @param from
-     *      the starting piece
-     * @param to
-     *      the destination piece
-     * @param visited
-     *      hashtable: key: piece, value: true if the piece was visited; otherwise false
-     * @param path
-     *      the current path
-     * @param allPaths
-     *      a DList storing all possible paths
+     * A recursive function to extend the path on pathStack, which ends at
+     * square from, by every piece findEdges allows that is not on it yet.
+     *     A path that reaches the end area is complete: it is added to
+     *     allPaths as a DList of Pieces, or, if allPaths is null, it is
+     *     checked as a network and the walk stops at the first one.  With a
+     *     null allPaths, paths that go on in the direction they came from are
+     *     cut at once, since findNetworks would drop all of their extensions.
+     * @return true if allPaths is null and a network was found
      */
-    protected void findPathsUtil(Piece from, Piece to, Hashtable <Piece, Boolean> visited,
-                                 DList path, DList allPaths, int player){
-        // Mark the current node as visited and store in path
-        visited.put(from, true);
-        path.insertBack(from);
+    private boolean findPaths(int from, int player, DList allPaths){
+        // Mark the current square as on the path
+        pathStack.push(from);
+        pathSquares.add(from);
+        boolean network = false;
 
-        // If current vertex is same as destination, then add current path to allPaths
-        if (from.equals(to)){
-            allPaths.insertBack(path.clone());
+        if (isInEndGoalArea(BitBoard.squareX(from), BitBoard.squareY(from), player)){
+            if (allPaths != null){
+                allPaths.insertBack(pathPieces());
+            } else {
+                network = pathStack.size() >= 6;
+            }
         }
         else {
-            // If current vertex is not destination
-            //Recur for all the vertices adjacent to this vertex
-            DList edges = findEdges(from, player);
-            for (DListNode next:edges) {
-                Piece nextPiece = null;
-                try {
-                    nextPiece = (Piece) next.item();
-                } catch (InvalidNodeException e) {
-                    System.out.println("Invalid node in findPathsUtil() when finding " +
-                            "next piece");
-                    e.printStackTrace();
-                }
-                if (path.hasItem(nextPiece)){continue;} // cannot have one item twice in the path
-                if (visited.get(nextPiece) == null || visited.get(nextPiece) == false){
-                    this.findPathsUtil(nextPiece, to, visited, path, allPaths, player);}
+            int lastDirection = pathStack.size() > 1 ? direction(pathStack.get(pathStack.size() - 2), from) : -1;
+            for (long edges = findEdges(from, player); edges != 0 && !network; edges &= edges - 1) {
+                int next = Long.numberOfTrailingZeros(edges);
+                if (pathSquares.contains(next)){continue;} // cannot have one square twice in the path
+                if (allPaths == null && direction(from, next) == lastDirection){continue;}
+                network = findPaths(next, player, allPaths);
             }
         }
-        // Remove current vertex from path and mark it as unvisited
-        try {
-            path.back().remove();
-        } catch (InvalidNodeException e) {
-            System.out.println("Invalid node in findPathsUtil() when removing last item " +
-                    "in the path");
-            e.printStackTrace();
-        }
-        visited.put(from, false);
+        // Remove current square from the path
+        pathStack.pop();
+        pathSquares.remove(from);
+        return network;
     }
 
     /**
-     * Return a Dlist of all paths/connections from 'from' to 'to'
-     * @param from
-     *      the starting piece
-     * @param to
-     *      the destination piece
-     * @param visited
-     *      hashtable: key: piece, value: true if the piece was visited; otherwise false
-     * @param allPaths
+     * Returns the direction from square a to square b, which share a row,
+     * column or diagonal, as a number from 0 to 8.
+     */
+    private static int direction(int a, int b){
+        int dx = Integer.signum(BitBoard.squareX(b) - BitBoard.squareX(a));
+        int dy = Integer.signum(BitBoard.squareY(b) - BitBoard.squareY(a));
+        return (dy + 1) * 3 + dx + 1;
+    }
+
+    /**
+     * Returns the path on pathStack as a DList of Pieces.
      */
-    protected void findPaths(Piece from, Piece to, Hashtable <Piece, Boolean> visited,
-                              DList allPaths, int player){
+    private DList pathPieces(){
         DList path = new DList();
-        findPathsUtil(from, to, visited, path, allPaths, player);
+        for (int i = 0; i < pathStack.size(); i++){
+            int s = pathStack.get(i);
+            path.insertBack(pieces[BitBoard.squareX(s)][BitBoard.squareY(s)]);
+        }
+        return path;
     }
 
     /**
-     * Return a Dlist of all paths/connections from 'from' to 'to'
+     * Return a Dlist of all paths/connections from the start area to the end area
      * Does not consider path's length and directions
      */
     protected DList findPaths(int player){
         DList allPaths = new DList();
-        Hashtable <Piece, Boolean> visited;
-
         for (DListNode start: findStart(player)){
-            Piece from = null;
             try {
-                from = (Piece) start.item();
+                Piece from = (Piece) start.item();
+                findPaths(BitBoard.square(from.getX(), from.getY()), player, allPaths);
             } catch (InvalidNodeException e) {
                 System.out.println("Invalid node in findPaths() when finding start piece.");
                 e.printStackTrace();
             }
-            for (DListNode end: findEnd(player)){
-                Piece to = null;
-                try {
-                    to = (Piece) end.item();
-                } catch (InvalidNodeException e) {
-                    System.out.println("Invalid node in findPaths() when finding end piece.");
-                    e.printStackTrace();
-                }
-                visited = new Hashtable <Piece, Boolean>();
-                findPaths(from, to, visited, allPaths, player);
-            }
         }
         return allPaths;
     }
@@ -458,13 +436,37 @@ public class Board {
 
     /**
      * check if the current player wins the game
+     * Uses the BitBoard's connection graph, which stops at the first network found
      * @return true or false
      */
     protected boolean isWin(int player){
-        DList allPaths = findPaths(player);
-        allPaths = findNetworks(allPaths);
-        if (allPaths.length() < 1){return false;}
-        return true;
+        return bits.isWin(player);
+    }
+
+    /**
+     * check if the current player wins the game by walking the paths
+     * findPaths lists, keeping only those findNetworks would keep
+     * @return true or false
+     */
+    protected boolean isWinByPaths(int player){
+        long starts = bits.chips(player) & bits.startGoalMask(player);
+        for (; starts != 0; starts &= starts - 1) {
+            if (findPaths(Long.numberOfTrailingZeros(starts), player, null)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * check if the current player wins the game by listing every path
+     * findPaths(player) finds and keeping those findNetworks keeps, with
+     * none of the pruning of isWinByPaths; very slow, for checking the
+     * other win detectors
+     * @return true or false
+     */
+    protected boolean isWinByNetworks(int player){
+        return findNetworks(findPaths(player)).length() > 0;
     }
 
     /* ============================== END OF NETWORK IDENTIFIER MODULE ===================================*/
@@ -481,13 +483,11 @@ public class Board {
         if (m.moveKind == Move.QUIT) {
             return true;
         }
-        if (isValidMove(m, player)) {
+        if (bits.makeMove(m, player)) {
             if (m.moveKind == Move.STEP) {
-                removePiece(getPiece(m.x2,m.y2));
+                pieces[m.x2][m.y2].setColor(EMPTY);
             }
-            addPiece(new Piece(m.x1, m.y1, player));
-            nextPlayer = otherPlayer(player);
-            numMoves++;
+            pieces[m.x1][m.y1].setColor(player);
             return true;
         }
         return false;
@@ -499,12 +499,14 @@ public class Board {
      * @param m
      */
     protected void undoMove(Move m, int player) {
+        if (m.moveKind == Move.QUIT) {
+            return;
+        }
+        bits.undoMove(m, player);
         if (m.moveKind == Move.STEP) {
-            pieces[m.x2][m.y2] = new Piece(m.x2, m.y2, player);
+            pieces[m.x2][m.y2].setColor(player);
         }
-        pieces[m.x1][m.y1] = new Piece(m.x1, m.y1, EMPTY);
-        nextPlayer = otherPlayer(player);
-        numMoves--;
+        pieces[m.x1][m.y1].setColor(EMPTY);
     }
 
     /**
@@ -512,7 +514,15 @@ public class Board {
      * @return the player's color
      */
     protected int getNextPlayer() {
-        return nextPlayer;
+        return bits.getNextPlayer();
+    }
+
+    /**
+     * Returns the Zobrist key of the position, kept up to date by makeMove
+     * and undoMove.
+     */
+    protected long getHashKey() {
+        return bits.getKey();
     }
 
     /**
@@ -520,7 +530,7 @@ public class Board {
      * @return the number of moves
      */
     protected int getNumMoves() {
-        return numMoves;
+        return bits.getNumMoves();
     }
     /* ============================== END OF GAME OPERATION MODULE ===================================*/
 
@@ -534,6 +544,7 @@ public class Board {
      */
     protected void addPiece(Piece p){
         pieces[p.getX()][p.getY()] = p;
+        bits.setColor(p.getX(), p.getY(), p.getColor());
     }
 
     /**
@@ -557,6 +568,7 @@ public class Board {
      */
     protected void removePiece(Piece p){
         pieces[p.getX()][p.getY()].setColor(EMPTY);
+        bits.setColor(p.getX(), p.getY(), EMPTY);
     }
 
     /**
@@ -565,34 +577,7 @@ public class Board {
      *   the move to be performed
      */
     private boolean isValidMove(Move m, int player){
-        // quit
-        if (m.moveKind == m.QUIT){
-            return true;
-        }
-        // can only step after 20 moves and only add <= 20 moves
-        if ((m.moveKind == Move.STEP && numMoves < 20) || (m.moveKind == Move.ADD && numMoves >= 20)) {
-            return false;
-        }
-
-        // add piece
-        if (m.moveKind == Move.ADD){
-            Piece newPiece = new Piece(m.x1, m.y1, player);
-            return (isValidAddPiece(newPiece, player));
-        }
-
-        // step piece
-        else{
-            Piece oldPiece = this.getPiece(m.x2, m.y2);
-            if (oldPiece.getColor() != player) {
-                return false;
-            }
-            Piece newPiece = new Piece(m.x1, m.y1, player);
-            // have to change the clip
-            if (oldPiece.getX() == newPiece.getX() && oldPiece.getY() == newPiece.getY()){
-                return false;
-            }
-            return (isValidRemovePiece(oldPiece, player) && isValidAddPiece(newPiece, player));
-        }
+        return bits.isValidMove(m, player);
     }
 
     /**
@@ -634,140 +619,16 @@ public class Board {
      * @Return validMoves
      */
     protected DList validMoves(int player){
-        //record all existed pieces (of the same color)
-        DList validMoves = new DList();
-
-        //if number of moves < 20, add piece
-        if (numMoves < 20) {
-            for (int i = 0; i < pieces.length; i++) {
-                for (int j = 0; j < pieces.length; j++) {
-                    Move m = new Move(pieces[i][j].getX(), pieces[i][j].getY());
-                    if (isValidMove(m, player)){validMoves.insertBack(m);}
-                }
-            }
-        } else {//if number of moves >= 20, step piece
-            DList existPiece = getExistPieces(player);
-            DList emptyPiece = getEmptyPieces();
-
-            try {
-                for (DListNode from: existPiece){
-                    Piece fromPiece = ((Piece) (from.item()));
-                    for (DListNode to: emptyPiece){
-                        Piece toPiece = ((Piece) (to.item()));
-                        Move m = new Move(toPiece.getX(), toPiece.getY(), fromPiece.getX(), fromPiece.getY());
-                        if (isValidMove(m, player)){
-                            validMoves.insertBack(m);
-                        }
-                    }
-                }
-            }catch (InvalidNodeException e){
-                System.out.println("InvalidNodeException in validMoves.");
-            }
-        }
-        return validMoves;
+        return bits.validMoves(player);
     }
 
     /**
-     * Check if it is valid to add the piece in the board
-     * @param p
-     *   the piece to be added
-     */
-    private boolean isValidAddPiece(Piece p, int player) {
-        int x = p.getX();
-        int y = p.getY();
-        int color = p.getColor();
-
-        // check status: must be among BLACK, WHITE and EMPTY
-        if (color != player){
-            return false;
-        }
-
-        // check position: mustn't be at the corners
-        if (isAtCorner(x, y)){
-            return false;
-        }
-
-        // check position: mustn't be in the opponent's goal area
-        if (color == WHITE && isInBlackGoalArea(x, y)){
-            return false;
-        }
-        if (color == BLACK && isInWhiteGoalArea(x, y)){
-            return false;
-        }
-
-        // check position: mustn's be in an occupied square
-        if (pieces[x][y].getColor() != EMPTY){
-            return false;
-        }
-
-        // check cluster: cannot cause cluster
-        if (isCluster(p)){
-            return false;
-        }
-
-        return true;
-    }
-
-    /**
-     * Check if it is valid to remove the piece in the board
-     * @param p
-     *   the piece to be removed
+     * Replaces the contents of moves with player's valid moves, packed as
+     * BitBoard.moveCode does; BitBoard.toMove unpacks them.  Allocates
+     * nothing once moves has grown to hold them.
      */
-    private boolean isValidRemovePiece(Piece p, int player){
-        int x = p.getX();
-        int y = p.getY();
-        int color = p.getColor();
-
-        // check status: cannot remove an EMPTY piece
-        if (color != player){
-            return false;
-        }
-
-        // check position: mustn't be at the corners
-        if (isAtCorner(x, y)){
-            return false;
-        }
-
-        // check position: mustn't be in the opponent's goal area
-        if (color == WHITE && isInBlackGoalArea(x, y)){
-            return false;
-        }
-        if (color == BLACK && isInWhiteGoalArea(x, y)){
-            return false;
-        }
-
-        return true;
-    }
-
-    /**
-     * Check if position (x, y) is at the corners
-     */
-    private boolean isAtCorner(int x, int y){
-        if ((x == 0 && y == 0)|| (x == 0 && y == length-1) ||
-                (x == length-1 && y == 0) || (x == length-1 && y == length - 1)){
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     * Check if position (x, y) is in the black goal area
-     */
-    private boolean isInBlackGoalArea(int x, int y){
-        if ((y == 0 || y == length-1) && x > 0 && x < length-1){
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     * Check if position (x, y) is in the white goal area
-     */
-    private boolean isInWhiteGoalArea(int x, int y){
-        if ((x == 0 || x == length-1) && y > 0 && y < length-1){
-            return true;
-        }
-        return false;
+    protected void validMoves(int player, IntList moves){
+        bits.generateMoves(player, moves);
     }
 
     /**
@@ -828,30 +689,70 @@ public class Board {
      * Check if adding p can make clusters (three adjacent pieces of the same color)
      */
     protected boolean isCluster(Piece p){
-        int count = 0;
+        return bits.isCluster(BitBoard.square(p.getX(), p.getY()), bits.chips(p.getColor()));
+    }
 
-        for(Piece p1: getNeighbors(p)){
-            if (p1 == null){continue;}
-            if (p1.getColor() != p.getColor()){continue;}
-            else { // have a neighbor with same color
-                count++;
-            }
+    /* ============================== END OF VERIFICATION MODULE ===================================*/
 
-            if (count > 1){
-                return true; // form a cluster centered at p
-            }
+    /* ============================== SYMMETRY MODULE ===================================*/
 
-            for (Piece p2: getNeighbors(p1)){
-                if (p2 != null && (! p2.equals(p)) && p2.getColor() == p1.getColor()){
-                    return true;
-                } // form a cluster centered at p1
-            }
-        }
+    // Symmetries of the 8*8 board, numbered 0 to SYMMETRIES - 1: the
+    // mirrors and the half turn, and the transposes that also swap the
+    // colors of all chips and the player to move (see BitBoard).
+    public static final int IDENTITY = BitBoard.IDENTITY;
+    public static final int SYMMETRIES = BitBoard.SYMMETRIES;
 
-        return false;
+    /**
+     * Returns the symmetry that maps this position and the player to move
+     * to their canonical form.  Symmetric positions have the same canonical
+     * form, so caches keyed by getCanonicalKey() share their entries; map
+     * a move m of this position into the canonical form with
+     * transformMove(m, t) and back with transformMove(m, inverseTransform(t)).
+     * Boards other than 8*8 are their own canonical form.
+     */
+    protected int canonicalTransform() {
+        return bits.canonicalTransform();
     }
 
-    /* ============================== END OF VERIFICATION MODULE ===================================*/
+    /**
+     * Returns the Zobrist key of the canonical form of this position and
+     * the player to move.
+     */
+    protected long getCanonicalKey() {
+        return bits.getCanonicalKey();
+    }
+
+    /**
+     * Returns a new board holding this position mapped by symmetry t, with
+     * the same number of moves made and transformPlayer(getNextPlayer(), t)
+     * to move.
+     */
+    protected Board transform(int t) {
+        return new Board(bits.transformed(t));
+    }
+
+    /**
+     * Returns move m mapped by symmetry t.
+     */
+    protected static Move transformMove(Move m, int t) {
+        return BitBoard.toMove(BitBoard.transformMove(BitBoard.moveCode(m), t));
+    }
+
+    /**
+     * Returns the color player is mapped to by symmetry t.
+     */
+    protected static int transformPlayer(int player, int t) {
+        return BitBoard.transformPlayer(player, t);
+    }
+
+    /**
+     * Returns the symmetry that undoes symmetry t.
+     */
+    protected static int inverseTransform(int t) {
+        return BitBoard.inverseTransform(t);
+    }
+
+    /* ============================== END OF SYMMETRY MODULE ===================================*/
 
     /**
      * Returns a String representation of the board.
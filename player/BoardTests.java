@@ -1,4 +1,8 @@
 package player;
+
+import java.util.Random;
+import list.*;
+
 public class BoardTests {
     public static void main(String[] args) {
         int WHITE = Board.WHITE;
@@ -21,6 +25,8 @@ public class BoardTests {
         b.addPiece(3, 1, WHITE);
         b.addPiece(7, 1, WHITE);
         System.out.println("Testing Board.isWin(WHITE), result should be true: " + b.isWin(WHITE));
+        System.out.println("Testing BitBoard.isWin(WHITE), result should be true: "
+                + b.getBitBoard().isWin(WHITE));
 
         Board c = new Board();
         c.addPiece(2, 0, BLACK);
@@ -34,6 +40,8 @@ public class BoardTests {
 
         c.addPiece(6, 2, BLACK);
         System.out.println("Testing Board.isWin(BLACK), result should be true: " + c.isWin(BLACK));
+        System.out.println("Testing BitBoard.isWin(BLACK), result should be true: "
+                + c.getBitBoard().isWin(BLACK));
         c.addPiece(4, 2, BLACK);
         c.addPiece(3, 1, WHITE);
         System.out.println(c);
@@ -48,5 +56,527 @@ public class BoardTests {
         c.addPiece(7, 3, WHITE);
         System.out.println("Testing Board.isWin(otherPlayer), result should be true: "
                 + c.isWin(c.otherPlayer(c.getNextPlayer())));
+
+        Board d = new Board();
+        System.out.println("Testing Board.validMoves(WHITE) on an empty board, result should be 48: "
+                + d.validMoves(WHITE).length());
+        IntList moves = new IntList(1);
+        d.validMoves(WHITE, moves);
+        System.out.println("Testing Board.validMoves(WHITE, IntList) on an empty board, result should be 48: "
+                + moves.length());
+        d.makeMove(new Move(1, 1), WHITE);
+        d.makeMove(new Move(1, 3), BLACK);
+        System.out.println("Testing Board.makeMove(add to (1,2)) next to its own chip, result should be true: "
+                + d.makeMove(new Move(1, 2), WHITE));
+        System.out.println("Testing Board.makeMove(add to (2,2)) into a cluster, result should be false: "
+                + d.makeMove(new Move(2, 2), WHITE));
+        d.undoMove(new Move(1, 2), WHITE);
+        System.out.println("Testing Board.getPiece(1, 2) after undoMove, result should be -1: "
+                + d.getPiece(1, 2).getColor());
+        System.out.println("Testing Board.makeMove(add to (0,3)) in the opponent's goal, result should be false: "
+                + d.makeMove(new Move(0, 3), BLACK));
+        Board e = new Board();
+        e.makeMove(new Move(2, 2), WHITE);
+        System.out.println("Testing Board.getNextPlayer() after a white move, result should be 0: "
+                + e.getNextPlayer());
+        System.out.println("Testing Board.getNextPlayer() of another board, result should be 1: "
+                + d.getNextPlayer());
+
+        System.out.println("Testing BitBoard ray tables against stepping square by square, mismatches should be 0: "
+                + rayMismatches(200));
+
+        System.out.println("Testing BitBoard.winningMoves against making every move, mismatches should be 0: "
+                + threatMismatches(100, 60));
+
+        System.out.println("Testing BitBoard.defences against making every move and reply, mismatches should be 0: "
+                + defenceMismatches(100, 60));
+
+        System.out.println("Testing Playout.randomMove and Playout.finish on random games, mismatches should be 0: "
+                + playoutMismatches(20, 60));
+
+        System.out.println("Testing ProofSearch against searching every line 3 plies deep, mismatches should be 0: "
+                + solverMismatches(20, 3));
+
+        System.out.println("Testing BitBoard symmetries on random games, mismatches should be 0: "
+                + symmetryMismatches(50, 30));
+
+        System.out.println("Testing FeatureEvaluator on an empty board, result should be 0.0: "
+                + new FeatureEvaluator().evaluate(new BitBoard(8)));
+
+        System.out.println("Testing Board.isWin, the win cache, links, connection counts and moves on random games, mismatches should be 0: "
+                + randomGameMismatches(200, 60));
+    }
+
+    /**
+     * Plays random games and counts positions where the BitBoard win detector,
+     * a WinCache or the path enumerations disagree, or where the incremental connection
+     * graph or the generated moves differ from ones computed from scratch.
+     */
+    private static int randomGameMismatches(int games, int movesPerGame) {
+        Random random = new Random(61);
+        WinCache wins = new WinCache(1);
+        int mismatches = 0;
+        for (int g = 0; g < games; g++) {
+            Board b = new Board();
+            int player = Board.WHITE;
+            for (int i = 0; i < movesPerGame; i++) {
+                DList moves = b.validMoves(player);
+                if (moves.length() == 0) {
+                    break;
+                }
+                try {
+                    Move m = (Move) moves.nth(random.nextInt(moves.length())).item();
+                    b.makeMove(m, player);
+                    if (random.nextInt(4) == 0) {
+                        b.undoMove(m, player);
+                        b.makeMove(m, player);
+                    }
+                } catch (InvalidNodeException e) {
+                    e.printStackTrace();
+                }
+                long chipKey = b.getBitBoard().getChipKey();
+                for (int color = Board.BLACK; color <= Board.WHITE; color++) {
+                    boolean won = b.isWinByPaths(color);
+                    if (b.isWin(color) != won || b.isWinByNetworks(color) != won) {
+                        mismatches++;
+                    }
+                    int cached = wins.probe(chipKey, color); // set if an undone move came back
+                    wins.store(chipKey, color, won);
+                    if ((cached >= 0 && (cached == 1) != won) || wins.probe(chipKey, color) != (won ? 1 : 0)) {
+                        mismatches++;
+                    }
+                }
+                if (!sameLinks(b.getBitBoard())) {
+                    mismatches++;
+                }
+                int[] conn = b.findAllConnections();
+                if (b.getBitBoard().countConnections(Board.WHITE) != conn[0]
+                        || b.getBitBoard().countConnections(Board.BLACK) != conn[1]) {
+                    mismatches++;
+                }
+                for (int color = Board.BLACK; color <= Board.WHITE; color++) {
+                    if (b.getBitBoard().countBlocked(color) != countBlocked(b.getBitBoard(), color)) {
+                        mismatches++;
+                    }
+                }
+                if (!sameMoves(b.getBitBoard(), Board.otherPlayer(player))) {
+                    mismatches++;
+                }
+                if (b.isWin(Board.WHITE) || b.isWin(Board.BLACK)) {
+                    break;
+                }
+                player = Board.otherPlayer(player);
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Checks BitBoard.firstChip against a walk along each direction, on
+     * random occupancies of every board length.
+     */
+    private static int rayMismatches(int occupancies) {
+        Random random = new Random(18);
+        int mismatches = 0;
+        for (int length = 3; length <= 8; length++) {
+            BitBoard b = new BitBoard(length);
+            for (int k = 0; k < occupancies; k++) {
+                long occ = random.nextLong() & random.nextLong();
+                for (int x = 0; x < length; x++) {
+                    for (int y = 0; y < length; y++) {
+                        for (int d = 0; d < 8; d++) {
+                            int dx = Board.DIRECTIONS[d][0], dy = Board.DIRECTIONS[d][1];
+                            int expected = -1;
+                            for (int i = x + dx, j = y + dy; b.inBound(i, j); i += dx, j += dy) {
+                                if ((occ & BitBoard.bit(i, j)) != 0) {
+                                    expected = BitBoard.square(i, j);
+                                    break;
+                                }
+                            }
+                            if (b.firstChip(BitBoard.square(x, y), d, occ) != expected) {
+                                mismatches++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Plays random games and checks BitBoard.winningMoves in every position
+     * without a network, for both players: every move found must win, every
+     * winning add move must be found, and the board must be left as it was.
+     * (A step can also win by unblocking a line elsewhere, which is not
+     * looked for.)
+     */
+    private static int threatMismatches(int games, int movesPerGame) {
+        Random random = new Random(20);
+        int[] moves = new int[BitBoard.MAX_MOVES];
+        int[] wins = new int[BitBoard.MAX_MOVES];
+        int mismatches = 0;
+        for (int g = 0; g < games; g++) {
+            BitBoard b = new BitBoard(8);
+            int player = Board.WHITE;
+            for (int i = 0; i < movesPerGame && !b.isWin(Board.WHITE) && !b.isWin(Board.BLACK); i++) {
+                for (int color = Board.BLACK; color <= Board.WHITE; color++) {
+                    long key = b.getKey();
+                    int connections = b.countConnections(color);
+                    int found = b.winningMoves(color, wins, BitBoard.MAX_MOVES);
+                    if (b.getKey() != key || b.countConnections(color) != connections) {
+                        mismatches++;
+                    }
+                    int n = b.generateMoves(color, moves);
+                    for (int k = 0; k < n; k++) {
+                        b.make(moves[k], color);
+                        boolean won = b.isWin(color);
+                        b.unmake(moves[k], color);
+                        boolean listed = false;
+                        for (int w = 0; w < found; w++) {
+                            listed |= wins[w] == moves[k];
+                        }
+                        if (listed && !won || won && !listed && BitBoard.moveKind(moves[k]) == Move.ADD) {
+                            mismatches++;
+                        }
+                    }
+                }
+                int n = b.generateMoves(player, moves);
+                if (n == 0) {
+                    break;
+                }
+                b.make(moves[random.nextInt(n)], player);
+                player = Board.otherPlayer(player);
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Plays random games and checks BitBoard.defences for the player to move
+     * wherever the other player has a winning move: every move it leaves out
+     * must lose, by completing the other player's network or letting it
+     * complete one with some reply, and the board must be left as it was.
+     */
+    private static int defenceMismatches(int games, int movesPerGame) {
+        Random random = new Random(20);
+        int[] moves = new int[BitBoard.MAX_MOVES];
+        int[] listed = new int[BitBoard.MAX_MOVES];
+        int[] buffer = new int[BitBoard.MAX_MOVES];
+        int mismatches = 0;
+        for (int g = 0; g < games; g++) {
+            BitBoard b = new BitBoard(8);
+            int player = Board.WHITE;
+            for (int i = 0; i < movesPerGame && !b.isWin(Board.WHITE) && !b.isWin(Board.BLACK); i++) {
+                int other = Board.otherPlayer(player);
+                int n = b.generateMoves(player, moves);
+                if (n == 0) {
+                    break;
+                }
+                if (b.winningMove(other, buffer) != 0) {
+                    long key = b.getKey();
+                    int found = b.defences(player, listed, buffer);
+                    if (b.getKey() != key) {
+                        mismatches++;
+                    }
+                    for (int k = 0; k < n; k++) {
+                        boolean isListed = false;
+                        for (int l = 0; l < found; l++) {
+                            isListed |= listed[l] == moves[k];
+                        }
+                        if (!isListed && !losesAtOnce(b, moves[k], player)) {
+                            mismatches++;
+                        }
+                    }
+                }
+                b.make(moves[random.nextInt(n)], player);
+                player = other;
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Returns true if the packed move of player on b completes the other
+     * player's network, or lets the other player complete its own and not
+     * player's with some reply.
+     */
+    private static boolean losesAtOnce(BitBoard b, int move, int player) {
+        int other = Board.otherPlayer(player);
+        b.make(move, player);
+        boolean loses = b.isWin(other);
+        if (!loses && !b.isWin(player)) {
+            int[] replies = new int[BitBoard.MAX_MOVES];
+            int n = b.generateMoves(other, replies);
+            for (int r = 0; r < n && !loses; r++) {
+                b.make(replies[r], other);
+                loses = b.isWin(other) && !b.isWin(player);
+                b.unmake(replies[r], other);
+            }
+        }
+        b.unmake(move, player);
+        return loses;
+    }
+
+    /**
+     * Plays games of Playout.randomMove and checks that it draws only valid
+     * moves, returns 0 exactly when there are none, and draws every valid
+     * move of the position in 20 draws per move; then finishes each game
+     * with Playout.finish and checks that the winner has a network.
+     */
+    private static int playoutMismatches(int games, int movesPerGame) {
+        Playout playout = new Playout(22);
+        int[] moves = new int[BitBoard.MAX_MOVES];
+        int[] draws = new int[1 << 14];
+        int mismatches = 0;
+        for (int g = 0; g < games; g++) {
+            BitBoard b = new BitBoard(8);
+            int player = Board.WHITE;
+            for (int i = 0; i < movesPerGame && !b.isWin(Board.WHITE) && !b.isWin(Board.BLACK); i++) {
+                int n = b.generateMoves(player, moves);
+                for (int k = 0; k < 20 * n; k++) {
+                    int move = playout.randomMove(b, player);
+                    if (!b.isValidMove(move, player)) {
+                        mismatches++;
+                    } else {
+                        draws[move]++;
+                    }
+                }
+                for (int k = 0; k < n; k++) {
+                    if (draws[moves[k]] == 0) {
+                        mismatches++;
+                    }
+                    draws[moves[k]] = 0;
+                }
+                int move = playout.randomMove(b, player);
+                if (n == 0) {
+                    if (move != 0) {
+                        mismatches++;
+                    }
+                    break;
+                }
+                b.make(move, player);
+                player = Board.otherPlayer(player);
+            }
+            int winner = playout.finish(b, player, 200);
+            if (winner != Playout.NO_WINNER && !b.isWin(winner)) {
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Plays random games into the late add phase and solves each position
+     * from move 14 on with ProofSearch, plies plies deep.  The result must
+     * match forcedWin, and a proven win's line must be valid moves ending
+     * in the attacker's network.
+     */
+    private static int solverMismatches(int games, int plies) {
+        Random random = new Random(25);
+        ProofSearch solver = new ProofSearch(1);
+        int[] moves = new int[BitBoard.MAX_MOVES];
+        int mismatches = 0;
+        for (int g = 0; g < games; g++) {
+            BitBoard b = new BitBoard(8);
+            int player = Board.WHITE;
+            for (int i = 0; i < 20 && !b.isWin(Board.WHITE) && !b.isWin(Board.BLACK); i++) {
+                if (i >= 14) {
+                    Solution solution = solver.solve(b, player, plies, Long.MAX_VALUE);
+                    boolean win = forcedWin(b, player, player, plies);
+                    if (solution.isProven() != win || !win && solution.getResult() != Solution.DISPROVEN) {
+                        mismatches++;
+                    }
+                    if (win && !validWinningLine(b, player, solution.getLine().toArray(new Move[0]))) {
+                        mismatches++;
+                    }
+                }
+                int n = b.generateMoves(player, moves);
+                if (n == 0) {
+                    break;
+                }
+                b.make(moves[random.nextInt(n)], player);
+                player = Board.otherPlayer(player);
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Returns true if attacker can force a network within plies plies, side
+     * to move, by trying every line: a player that cannot move loses, and
+     * a move completing both networks loses for the player who made it.
+     */
+    private static boolean forcedWin(BitBoard b, int attacker, int side, int plies) {
+        if (plies == 0) {
+            return false;
+        }
+        int[] moves = new int[BitBoard.MAX_MOVES];
+        int n = b.generateMoves(side, moves);
+        if (n == 0) {
+            return side != attacker;
+        }
+        int other = Board.otherPlayer(side);
+        for (int i = 0; i < n; i++) {
+            b.make(moves[i], side);
+            boolean won = b.isWin(other) ? other == attacker
+                    : b.isWin(side) ? side == attacker : forcedWin(b, attacker, other, plies - 1);
+            b.unmake(moves[i], side);
+            if (won == (side == attacker)) {
+                return won;
+            }
+        }
+        return side != attacker;
+    }
+
+    /**
+     * Returns true if line is a sequence of valid moves from b, attacker
+     * first, after which only attacker has a network.  Leaves b as it was.
+     */
+    private static boolean validWinningLine(BitBoard b, int attacker, Move[] line) {
+        BitBoard copy = new BitBoard(b);
+        int side = attacker;
+        for (Move m : line) {
+            if (copy.isWin(Board.WHITE) || copy.isWin(Board.BLACK) || !copy.makeMove(m, side)) {
+                return false;
+            }
+            side = Board.otherPlayer(side);
+        }
+        return copy.isWin(attacker) && !copy.isWin(Board.otherPlayer(attacker));
+    }
+
+    /**
+     * Plays random games and checks every symmetry of every position: the
+     * mapped board must match one built square by square, have the mapped
+     * key, the same canonical key, the mapped counters and wins, and map
+     * back to the position; every valid move must map to a valid move.
+     */
+    private static int symmetryMismatches(int games, int movesPerGame) {
+        Random random = new Random(15);
+        int mismatches = 0;
+        int[] moves = new int[BitBoard.MAX_MOVES];
+        int[] mappedMoves = new int[BitBoard.MAX_MOVES];
+        for (int g = 0; g < games; g++) {
+            BitBoard b = new BitBoard(8);
+            int player = Board.WHITE;
+            for (int i = 0; i < movesPerGame; i++) {
+                int n = b.generateMoves(player, moves);
+                if (n == 0) {
+                    break;
+                }
+                b.make(moves[random.nextInt(n)], player);
+                player = Board.otherPlayer(player);
+                n = b.generateMoves(player, moves);
+                for (int t = 0; t < BitBoard.SYMMETRIES; t++) {
+                    BitBoard mapped = b.transformed(t);
+                    for (int s = 0; s < 64; s++) {
+                        int m = BitBoard.transformSquare(s, t);
+                        int color = b.getColor(BitBoard.squareX(s), BitBoard.squareY(s));
+                        int expected = color == Board.EMPTY ? Board.EMPTY : BitBoard.transformPlayer(color, t);
+                        if (mapped.getColor(BitBoard.squareX(m), BitBoard.squareY(m)) != expected) {
+                            mismatches++;
+                        }
+                    }
+                    if (mapped.getKey() != b.transformedKey(t) || mapped.getCanonicalKey() != b.getCanonicalKey()
+                            || mapped.transformed(BitBoard.inverseTransform(t)).getKey() != b.getKey()) {
+                        mismatches++;
+                    }
+                    for (int color = Board.BLACK; color <= Board.WHITE; color++) {
+                        int other = BitBoard.transformPlayer(color, t);
+                        if (BitBoard.transformMask(b.chips(color), t) != mapped.chips(other)
+                                || b.countConnections(color) != mapped.countConnections(other)
+                                || b.countBlocked(color) != mapped.countBlocked(other)
+                                || b.isWin(color) != mapped.isWin(other)) {
+                            mismatches++;
+                        }
+                    }
+                    int mover = BitBoard.transformPlayer(player, t);
+                    if (mapped.getNextPlayer() != BitBoard.transformPlayer(b.getNextPlayer(), t)
+                            || mapped.generateMoves(mover, mappedMoves) != n) {
+                        mismatches++;
+                    }
+                    for (int k = 0; k < n; k++) {
+                        if (!mapped.isValidMove(BitBoard.transformMove(moves[k], t), mover)) {
+                            mismatches++;
+                        }
+                    }
+                }
+                if (b.isWin(Board.WHITE) || b.isWin(Board.BLACK)) {
+                    break;
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Counts player's blocked rays by walking every ray of every chip.
+     */
+    private static int countBlocked(BitBoard b, int player) {
+        int blocked = 0;
+        for (int x = 0; x < b.getLength(); x++) {
+            for (int y = 0; y < b.getLength(); y++) {
+                if (b.getColor(x, y) != player) {
+                    continue;
+                }
+                for (int[] d : Board.DIRECTIONS) {
+                    int i = x + d[0], j = y + d[1];
+                    while (b.inBound(i, j) && b.getColor(i, j) == Board.EMPTY) {
+                        i += d[0];
+                        j += d[1];
+                    }
+                    if (b.inBound(i, j) && b.getColor(i, j) != player) {
+                        blocked++;
+                    }
+                }
+            }
+        }
+        return blocked;
+    }
+
+    /**
+     * Check the connection graph of b against one built chip by chip on a new BitBoard.
+     */
+    private static boolean sameLinks(BitBoard b) {
+        BitBoard rebuilt = new BitBoard(b.getLength());
+        for (int x = 0; x < b.getLength(); x++) {
+            for (int y = 0; y < b.getLength(); y++) {
+                rebuilt.setColor(x, y, b.getColor(x, y));
+            }
+        }
+        for (int s = 0; s < 64; s++) {
+            if (rebuilt.links(s) != b.links(s)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check the moves generated with cluster masks against isValidMove on every move.
+     */
+    private static boolean sameMoves(BitBoard b, int player) {
+        int[] moves = new int[BitBoard.MAX_MOVES];
+        int n = b.generateMoves(player, moves);
+        for (int i = 0; i < n; i++) {
+            if (!b.isValidMove(BitBoard.toMove(moves[i]), player)) {
+                return false;
+            }
+        }
+        int valid = 0;
+        for (int to = 0; to < 64; to++) {
+            Move add = new Move(BitBoard.squareX(to), BitBoard.squareY(to));
+            if (b.isValidMove(add, player)) {
+                valid++;
+            }
+            for (int from = 0; from < 64; from++) {
+                Move step = new Move(BitBoard.squareX(to), BitBoard.squareY(to),
+                        BitBoard.squareX(from), BitBoard.squareY(from));
+                if (b.isValidMove(step, player)) {
+                    valid++;
+                }
+            }
+        }
+        return valid == n;
     }
-}
\ No newline at end of file
+}
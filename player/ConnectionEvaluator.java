@@ -0,0 +1,19 @@
+/* ConnectionEvaluator.java */
+
+package player;
+
+/**
+ *  The original evaluation: the balance of white's and black's
+ *  connections, .99 * (white - black) / (white + black).  Reads counters
+ *  the BitBoard keeps, so it costs next to nothing.
+ */
+class ConnectionEvaluator implements Evaluator {
+
+  public double evaluate(BitBoard board) {
+    return board.evaluateConnections();
+  }
+
+  public String toString() {
+    return "connections";
+  }
+}
@@ -0,0 +1,23 @@
+/* Evaluator.java */
+
+package player;
+
+/**
+ *  A static evaluation function for MachinePlayer's search.  The search
+ *  detects networks itself, so an Evaluator only scores boards on which
+ *  neither player has one.
+ *
+ *  Implementations are shared by all search threads of a player, so they
+ *  must be safe to call concurrently; keeping no mutable state does it.
+ *  Evaluators read the package's BitBoard, so they are written in this
+ *  package too.
+ */
+interface Evaluator {
+
+  /**
+   * Scores a board with no network from white's point of view, strictly
+   * between -1 and 1: positive is better for white.  -1 and 1 are left for
+   * won boards.
+   */
+  double evaluate(BitBoard board);
+}
@@ -0,0 +1,160 @@
+/* FeatureEvaluator.java */
+
+package player;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ *  An evaluation from weighted features of each player's chips:
+ *
+ *    goals        how many of its two goal areas hold a chip
+ *    connections  (chip, direction) pairs that see a chip of the same color
+ *    blocked      (chip, direction) pairs whose first chip seen is the opponent's
+ *    reach        how far the chips linked to each goal area stretch toward the other
+ *    network      chips linked to a goal chip, a partial network's length
+ *
+ *  The score is the weighted sum of white's features minus black's, squashed
+ *  into (-.99, .99).  Connections and blocked rays are counters the BitBoard
+ *  keeps; reach and network follow the link graph from the goal chips, a few
+ *  mask operations per chip.
+ *
+ *  Weights can be read from a properties file with one "feature = weight"
+ *  line per feature; missing features keep their default weights.
+ */
+class FeatureEvaluator implements Evaluator {
+
+  // Feature indexes into the weights
+  public static final int GOALS = 0;
+  public static final int CONNECTIONS = 1;
+  public static final int BLOCKED = 2;
+  public static final int REACH = 3;
+  public static final int NETWORK = 4;
+
+  // Feature names, as written in weight files
+  static final String[] NAMES = {"goals", "connections", "blocked", "reach", "network"};
+
+  static final double[] DEFAULT_WEIGHTS = {0.2, 0.05, -0.02, 0.08, 0.05};
+
+  private final double[] weights;
+
+  /**
+   * Creates an evaluator with the default weights.
+   */
+  public FeatureEvaluator() {
+    this(DEFAULT_WEIGHTS);
+  }
+
+  /**
+   * Creates an evaluator with the given weights, indexed by feature.
+   */
+  public FeatureEvaluator(double[] weights) {
+    if (weights.length != NAMES.length) {
+      throw new IllegalArgumentException("Expected " + NAMES.length + " weights: " + weights.length);
+    }
+    this.weights = weights.clone();
+  }
+
+  /**
+   * Reads the weights from a properties file.
+   * @param file
+   *    lines of "feature = weight", feature being one of goals, connections,
+   *    blocked, reach and network
+   */
+  public static FeatureEvaluator load(String file) throws IOException {
+    Properties properties = new Properties();
+    try (Reader in = new InputStreamReader(new FileInputStream(file), "UTF-8")) {
+      properties.load(in);
+    }
+    double[] weights = DEFAULT_WEIGHTS.clone();
+    for (String name : properties.stringPropertyNames()) {
+      int feature = Arrays.asList(NAMES).indexOf(name);
+      if (feature < 0) {
+        throw new IllegalArgumentException("Unknown feature in " + file + ": " + name);
+      }
+      try {
+        weights[feature] = Double.parseDouble(properties.getProperty(name).trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Bad weight of " + name + " in " + file + ": " + properties.getProperty(name));
+      }
+    }
+    return new FeatureEvaluator(weights);
+  }
+
+  /**
+   * Returns the weight of a feature.
+   */
+  public double getWeight(int feature) {
+    return weights[feature];
+  }
+
+  public double evaluate(BitBoard board) {
+    double score = weightedSum(board, Board.WHITE) - weightedSum(board, Board.BLACK);
+    return .99 * score / (1 + Math.abs(score));
+  }
+
+  /**
+   * Returns the weighted sum of the features of player's chips.
+   */
+  private double weightedSum(BitBoard board, int player) {
+    long own = board.chips(player);
+    long startGoal = board.startGoalMask(player);
+    long endGoal = board.endGoalMask(player);
+    int goals = ((own & startGoal) != 0 ? 1 : 0) + ((own & endGoal) != 0 ? 1 : 0);
+
+    long fromStart = board.linkedTo(startGoal, player);
+    long fromEnd = board.linkedTo(endGoal, player);
+    int reach = 0;
+    if (fromStart != 0) {
+      reach += maxAlong(fromStart, player);
+    }
+    if (fromEnd != 0) {
+      reach += board.getLength() - 1 - minAlong(fromEnd, player);
+    }
+
+    return weights[GOALS] * goals
+            + weights[CONNECTIONS] * board.countConnections(player)
+            + weights[BLOCKED] * board.countBlocked(player)
+            + weights[REACH] * reach
+            + weights[NETWORK] * Long.bitCount(fromStart | fromEnd);
+  }
+
+  /**
+   * Returns the largest coordinate of the squares of a nonempty mask along
+   * player's axis, from its start goal toward its end goal: x for white, y for black.
+   */
+  private static int maxAlong(long squares, int player) {
+    if (player == Board.WHITE) {
+      return 31 - Integer.numberOfLeadingZeros(columns(squares));
+    }
+    return (63 - Long.numberOfLeadingZeros(squares)) >>> 3;
+  }
+
+  /**
+   * Returns the smallest coordinate of the squares of a nonempty mask along player's axis.
+   */
+  private static int minAlong(long squares, int player) {
+    if (player == Board.WHITE) {
+      return Integer.numberOfTrailingZeros(columns(squares));
+    }
+    return Long.numberOfTrailingZeros(squares) >>> 3;
+  }
+
+  /**
+   * Returns the columns that hold a square of the mask, as 8 bits.
+   */
+  private static int columns(long squares) {
+    squares |= squares >>> 32;
+    squares |= squares >>> 16;
+    squares |= squares >>> 8;
+    return (int) squares & 0xff;
+  }
+
+  public String toString() {
+    StringBuilder s = new StringBuilder("features");
+    for (int feature = 0; feature < NAMES.length; feature++) {
+      s.append(feature == 0 ? "(" : ", ").append(NAMES[feature]).append('=').append(weights[feature]);
+    }
+    return s.append(')').toString();
+  }
+}
@@ -3,39 +3,147 @@
 package player;
 
 import java.io.*;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
 import list.*;
 
 /**
  *  An implementation of an automatic Network player.  Keeps track of moves
  *  made by both players.  Can select a move for itself.
+ *
+ *  With more than one search thread, runs a Lazy SMP search: helper threads
+ *  search copies of the board at staggered depths and share the
+ *  transposition table with the main search, whose result is played.
+ *
+ *  With pondering on, the player keeps searching after chooseMove()
+ *  returns: one thread searches the position after the opponent's reply
+ *  that the principal variation predicts, sharing the transposition table.
+ *  opponentMove() stops it.  If the opponent played the predicted reply (a
+ *  ponder hit) the next chooseMove() starts from a table that already holds
+ *  the ponder's iterations, and plays the pondered move without searching
+ *  if the ponder got to maxDepth, or else resumes the ponder's iterative
+ *  deepening at its next depth; otherwise the ponder is cancelled and only
+ *  its table entries are left.
+ *
+ *  solve() proves or disproves a forced network win by proof-number search
+ *  (see ProofSearch), for "Network problems" set up with forceMove() and
+ *  opponentMove().  With a solver budget, chooseMove() tries that first and
+ *  plays the winning line when it finds one.
  */
 public class MachinePlayer extends Player {
 
 
   protected String myName = "machine";
-  private Board board;
+  private BitBoard board;
+  private TranspositionTable table;
+  private final Evaluator evaluator;
   private int playerColor;
   private int opponentColor;
   public int maxDepth;
+  private Duration timeBudget; // null searches every move to maxDepth
+  private boolean ordering = true;
+  private boolean windows = true;
+  private int quiescenceBudget = Search.DEFAULT_QUIESCENCE_BUDGET;
+  private boolean lateMoveReductions;
+  private boolean futilityPruning;
+  private boolean nullMove;
+  private WinCache winCache; // shared by all search threads, null for none (the default)
+  private boolean checkWins;
+
+  private Search search; // runs on the caller's thread, on board
+  private Search[] helpers = new Search[0]; // each on its own copy of board
+  private ExecutorService pool;
+  private OpeningBook book; // null searches every move
+  private ProofSearch solver; // made on first use
+  private long solverBudget; // nodes chooseMove() lets the solver expand, 0 for none
+
+  // Pondering state
+  private boolean pondering;
+  private Search ponderSearch; // searches on ponderPool, on its own copy of board
+  private ExecutorService ponderPool; // null unless pondering
+  private Future<Move> ponderTask; // the running ponder, null if none
+  private int ponderReply; // packed opponent reply the running ponder assumes
+  private long ponderStart; // System.nanoTime() when it started
+  private Move ponderedMove; // best move of a ponder hit, for the next chooseMove(), or null
+  private SearchStats ponderedStats; // statistics of that ponder
+
+  // Pondering since the player was created
+  private long ponders;
+  private long ponderHits;
+  private long ponderNanos;
+  private long ponderHitNanos;
+
+  // Opening book use since the player was created
+  private long bookProbes;
+  private long bookHits;
+
+  // Statistics of the last chooseMove()
+  private SearchStats lastStats = new SearchStats();
+  private PrintStream statsLog; // null logs nothing
+
+  // Default transposition table size in megabytes
+  public static final int DEFAULT_TABLE_SIZE = 16;
+
+  // Deepest iteration a timed search may reach
+  public static final int MAX_DEPTH = 32;
+
+  // Most plies of a line solve() proves, and the solver table size in megabytes
+  public static final int SOLVER_PLIES = 15;
+  public static final int SOLVER_TABLE_SIZE = 16;
+
+  // Time budget of players created without a search depth
+  public static final Duration DEFAULT_TIME_BUDGET = Duration.ofSeconds(1);
 
 
   /**
-   * Creates a machine player with the given color and search depth = 4.
+   * Creates a machine player with the given color that searches as deep as
+   * it can within DEFAULT_TIME_BUDGET per move, playing from the opening
+   * book in OpeningBook.DEFAULT_FILE if there is one.
    * Color is either 0 (black) or 1 (white).
    * @param color
    */
   public MachinePlayer(int color) {
-    this(color, 3);
+    this(color, MAX_DEPTH, DEFAULT_TIME_BUDGET);
+    setOpeningBook(OpeningBook.openDefault());
   }
 
   /**
-   * Creates a machine player with the given color and search depth.  Color is
-   * either 0 (black) or 1 (white).
+   * Creates a machine player with the given color that searches every move
+   * to the given depth, however long it takes.  Color is either 0 (black)
+   * or 1 (white).
    * @param color
    * @param searchDepth
    */
   public MachinePlayer(int color, int searchDepth) {
+    this(color, searchDepth, DEFAULT_TABLE_SIZE);
+  }
+
+  /**
+   * Creates a machine player with the given color, search depth and
+   * transposition table size.  Color is either 0 (black) or 1 (white).
+   * @param color
+   * @param searchDepth
+   * @param tableSize
+   *    transposition table size in megabytes
+   */
+  public MachinePlayer(int color, int searchDepth, int tableSize) {
+    this(color, searchDepth, tableSize, new ConnectionEvaluator());
+  }
+
+  /**
+   * Creates a machine player with the given color, search depth,
+   * transposition table size and evaluation function.  Color is either 0
+   * (black) or 1 (white).
+   * @param color
+   * @param searchDepth
+   *    1 to MAX_DEPTH
+   * @param tableSize
+   *    transposition table size in megabytes
+   * @param evaluator
+   *    scores the positions at the search horizon
+   */
+  MachinePlayer(int color, int searchDepth, int tableSize, Evaluator evaluator) {
     assert (color == 0 || color == 1):
             "Wrong color: " + color;
     if (color == 0){
@@ -45,89 +153,599 @@ public class MachinePlayer extends Player {
       this.playerColor = Board.WHITE;
       this.opponentColor = Board.BLACK;
     }
+    if (searchDepth < 1 || searchDepth > MAX_DEPTH) {
+      throw new IllegalArgumentException("Search depth must be 1 to " + MAX_DEPTH + ": " + searchDepth);
+    }
     //reinitialize searchDepth
     this.maxDepth = searchDepth;
-    this.board = new Board();
+    this.board = new BitBoard(8);
+    this.table = new TranspositionTable(tableSize);
+    this.evaluator = evaluator;
+    this.search = newSearch();
+    this.ponderSearch = newSearch();
+  }
+
+  /**
+   * Creates a machine player with the given color that deepens its search
+   * until the time budget of each move is spent or searchDepth is reached.
+   * Color is either 0 (black) or 1 (white).
+   * @param color
+   * @param searchDepth
+   * @param timeBudget
+   *    time per move, or null for no limit
+   */
+  public MachinePlayer(int color, int searchDepth, Duration timeBudget) {
+    this(color, searchDepth, DEFAULT_TABLE_SIZE);
+    this.timeBudget = timeBudget;
+  }
+
+  /**
+   * Creates a machine player like MachinePlayer(color, searchDepth, timeBudget)
+   * that scores the positions at the search horizon with evaluator.
+   * @param color
+   * @param searchDepth
+   * @param timeBudget
+   *    time per move, or null for no limit
+   * @param evaluator
+   */
+  MachinePlayer(int color, int searchDepth, Duration timeBudget, Evaluator evaluator) {
+    this(color, searchDepth, DEFAULT_TABLE_SIZE, evaluator);
+    this.timeBudget = timeBudget;
+  }
+
+  /**
+   * Creates a machine player like MachinePlayer(color, searchDepth, timeBudget)
+   * that searches on the given number of threads.
+   * @param color
+   * @param searchDepth
+   * @param timeBudget
+   *    time per move, or null for no limit
+   * @param threads
+   *    number of search threads, 1 for a serial search
+   */
+  public MachinePlayer(int color, int searchDepth, Duration timeBudget, int threads) {
+    this(color, searchDepth, timeBudget);
+    setThreads(threads);
+  }
+
+  /**
+   * Sets the number of search threads.  1 searches serially; more add Lazy
+   * SMP helper threads, which only make sense with a time budget or a depth
+   * deep enough to keep them busy.
+   * @param threads
+   */
+  public void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of search threads must be at least 1: " + threads);
+    }
+    if (pool != null) {
+      pool.shutdownNow();
+      pool = null;
+    }
+    helpers = new Search[threads - 1];
+    for (int i = 0; i < helpers.length; i++) {
+      helpers[i] = newSearch();
+    }
+    if (helpers.length > 0) {
+      pool = Executors.newFixedThreadPool(helpers.length, r -> {
+        Thread t = new Thread(r, "search helper");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+  }
+
+  /**
+   * Makes chooseMove() play the book move, if there is one, in positions
+   * of the add phase instead of searching.
+   * @param book
+   *    the opening book, or null to always search
+   */
+  public void setOpeningBook(OpeningBook book) {
+    this.book = book;
+  }
+
+  /**
+   * Returns the evaluation function of the search.
+   */
+  Evaluator getEvaluator() {
+    return evaluator;
+  }
+
+  /**
+   * Returns the number of search threads.
+   */
+  public int getThreads() {
+    return helpers.length + 1;
+  }
+
+  /**
+   * Sets the time budget of each move.  The returned move is the best one of
+   * the deepest search iteration that finished within the budget.
+   * @param timeBudget
+   *    time per move, or null to always search to maxDepth
+   */
+  public void setTimeBudget(Duration timeBudget) {
+    this.timeBudget = timeBudget;
+  }
+
+  /**
+   * Returns the time budget of each move, or null if there is none.
+   */
+  public Duration getTimeBudget() {
+    return timeBudget;
+  }
+
+  /**
+   * Replaces the transposition table by an empty one of the given size.
+   * @param megabytes
+   */
+  public void setTableSize(int megabytes) {
+    stopPondering(0);
+    ponderedMove = null;
+    this.table = new TranspositionTable(megabytes);
+    this.search = newSearch();
+    this.ponderSearch = newSearch();
+    setThreads(getThreads());
+  }
+
+  /**
+   * Replaces the win cache, which remembers which positions have a network
+   * so that the search checks each position once, by an empty one.  There
+   * is none by default: BitBoard.isWin follows link masks from the goal
+   * chips in less time than a probe of a cache that misses the processor's
+   * caches, and the transposition table already settles most repeated
+   * positions, so a cache pays only with a costlier win check.
+   * @param megabytes
+   *    cache size, or 0 for no cache
+   */
+  public void setWinCacheSize(int megabytes) {
+    stopPondering(0);
+    ponderedMove = null;
+    this.winCache = megabytes == 0 ? null : new WinCache(megabytes);
+    this.search = newSearch();
+    this.ponderSearch = newSearch();
+    setThreads(getThreads());
+  }
+
+  /**
+   * Turns verifying every win cache hit against Board.isWinByNetworks,
+   * which lists every path from goal to goal and keeps the networks among
+   * them, on or off.  Unlike BitBoard.isWin it uses no connection graph
+   * and prunes no path.  Disagreements are reported by
+   * SearchStats.getWinCheckMismatches().  Verifying is very slow.
+   * @param checkWins
+   */
+  public void setWinCacheCheck(boolean checkWins) {
+    this.checkWins = checkWins;
+    search.setWinCheck(checkWins);
+    for (Search helper : helpers) {
+      helper.setWinCheck(checkWins);
+    }
+    ponderSearch.setWinCheck(checkWins);
+  }
+
+  /**
+   * Creates a Search on board with this player's table, win cache and settings.
+   */
+  private Search newSearch() {
+    Search s = new Search(board, table, evaluator, playerColor);
+    s.setOrdering(ordering);
+    s.setWindows(windows);
+    s.setQuiescenceBudget(quiescenceBudget);
+    s.setLateMoveReductions(lateMoveReductions);
+    s.setFutilityPruning(futilityPruning);
+    s.setNullMove(nullMove);
+    s.setWinCache(winCache);
+    s.setWinCheck(checkWins);
+    return s;
+  }
+
+  /**
+   * Turns move ordering by killer moves, the history table and each move's
+   * connection gain on or off, for comparing node counts.  It is on by
+   * default; off, only the principal variation and hash moves go first.
+   * @param ordering
+   */
+  public void setMoveOrdering(boolean ordering) {
+    this.ordering = ordering;
+    search.setOrdering(ordering);
+    for (Search helper : helpers) {
+      helper.setOrdering(ordering);
+    }
+    ponderSearch.setOrdering(ordering);
+  }
+
+  /**
+   * Turns principal variation search, which searches all moves but the
+   * first with a zero window, and aspiration windows around an earlier
+   * iteration's score on or off, for comparing node counts.  They are on by
+   * default; off, every move is searched with the full window.
+   * @param windows
+   */
+  public void setPrincipalVariationSearch(boolean windows) {
+    this.windows = windows;
+    search.setWindows(windows);
+    for (Search helper : helpers) {
+      helper.setWindows(windows);
+    }
+    ponderSearch.setWindows(windows);
+  }
+
+  /**
+   * Sets how many positions each search iteration may search beyond its
+   * horizon to play out network threats: a player that can complete a
+   * network there wins, and one that must block one searches its blocking
+   * moves.  Past the budget, threats are evaluated like quiet positions.
+   * @param nodes
+   *    quiescence nodes per iteration, 0 for no quiescence search
+   */
+  public void setQuiescenceBudget(int nodes) {
+    if (nodes < 0) {
+      throw new IllegalArgumentException("Quiescence budget must not be negative: " + nodes);
+    }
+    this.quiescenceBudget = nodes;
+    search.setQuiescenceBudget(nodes);
+    for (Search helper : helpers) {
+      helper.setQuiescenceBudget(nodes);
+    }
+    ponderSearch.setQuiescenceBudget(nodes);
+  }
+
+  /**
+   * Turns late move reductions on or off: moves ordered after the first
+   * few are first searched a ply or two shallower, and to the full depth
+   * only if that shallow search finds them better than expected.  Off by
+   * default.
+   * @param lateMoveReductions
+   */
+  public void setLateMoveReductions(boolean lateMoveReductions) {
+    this.lateMoveReductions = lateMoveReductions;
+    search.setLateMoveReductions(lateMoveReductions);
+    for (Search helper : helpers) {
+      helper.setLateMoveReductions(lateMoveReductions);
+    }
+    ponderSearch.setLateMoveReductions(lateMoveReductions);
+  }
+
+  /**
+   * Turns futility pruning on or off: one ply above the horizon, where the
+   * board evaluation is too far from the window for one move to reach it,
+   * only moves that win or threaten a network are searched.  Off by default.
+   * @param futilityPruning
+   */
+  public void setFutilityPruning(boolean futilityPruning) {
+    this.futilityPruning = futilityPruning;
+    search.setFutilityPruning(futilityPruning);
+    for (Search helper : helpers) {
+      helper.setFutilityPruning(futilityPruning);
+    }
+    ponderSearch.setFutilityPruning(futilityPruning);
+  }
+
+  /**
+   * Turns null-move probes on or off: in the step phase, a position where
+   * even passing, searched shallower, leaves the player better off than
+   * needed is not searched further.  Never tried when the opponent
+   * threatens a network, or twice in a row.  Off by default.
+   * @param nullMove
+   */
+  public void setNullMove(boolean nullMove) {
+    this.nullMove = nullMove;
+    search.setNullMove(nullMove);
+    for (Search helper : helpers) {
+      helper.setNullMove(nullMove);
+    }
+    ponderSearch.setNullMove(nullMove);
+  }
+
+  /**
+   * Turns pondering on or off: searching, on one more thread, the position
+   * after the opponent's reply predicted by the principal variation while
+   * the opponent is to move.  It is off by default.  Turning it off stops a
+   * running ponder and its thread.
+   * @param pondering
+   */
+  public void setPondering(boolean pondering) {
+    this.pondering = pondering;
+    if (!pondering) {
+      stopPondering(0);
+      ponderedMove = null;
+      if (ponderPool != null) {
+        ponderPool.shutdownNow();
+        ponderPool = null;
+      }
+    } else if (ponderPool == null) {
+      ponderPool = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ponder");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+  }
+
+  /**
+   * Returns true if the player ponders on the opponent's time.
+   */
+  public boolean isPondering() {
+    return pondering;
+  }
+
+  /**
+   * Tries to prove that this player, to move, can force a network within
+   * SOLVER_PLIES plies, by proof-number search.
+   * @param nodes
+   *    most positions to expand before giving up
+   * @return the result, with the winning line if proven
+   */
+  public Solution solve(long nodes) {
+    return solve(nodes, SOLVER_PLIES);
+  }
+
+  /**
+   * Tries to prove that this player, to move, can force a network within
+   * the given number of plies, counting its own moves and the opponent's.
+   * The solver's table is kept between calls.
+   * @param nodes
+   *    most positions to expand before giving up
+   * @param plies
+   *    1 to MAX_DEPTH
+   * @return the result, with the winning line if proven
+   */
+  public Solution solve(long nodes, int plies) {
+    if (solver == null) {
+      solver = new ProofSearch(SOLVER_TABLE_SIZE);
+    }
+    return solver.solve(board, playerColor, plies, nodes);
+  }
+
+  /**
+   * Makes chooseMove() first try to prove a forced win with solve(nodes),
+   * outside the opening book, and play the first move of the winning line
+   * if it finds one.  The solver's time is not taken from the time budget.
+   * @param nodes
+   *    most positions the solver expands per move, 0 (the default) to not solve
+   */
+  public void setSolverBudget(long nodes) {
+    if (nodes < 0) {
+      throw new IllegalArgumentException("Solver budget must not be negative: " + nodes);
+    }
+    this.solverBudget = nodes;
+  }
+
+  /**
+   * Returns the statistics of the last chooseMove(), summed over all search
+   * threads.  The depth, score and principal variation are the main search's.
+   */
+  public SearchStats getSearchStats() {
+    return lastStats;
+  }
+
+  /**
+   * Makes every chooseMove() write its statistics to out as one line of
+   * key=value pairs (see SearchStats.toLogLine).
+   * @param out
+   *    where to log, or null to stop logging
+   */
+  public void setStatsLog(PrintStream out) {
+    this.statsLog = out;
+  }
+
+  /**
+   * Returns the transposition table hit, miss and cutoff rates of the last search.
+   */
+  public String getTableStats() {
+    return String.format("tt probes=%d hits=%.1f%% misses=%.1f%% cutoffs=%.1f%%", lastStats.getTableProbes(),
+            100 * lastStats.getTableHitRate(), 100 * (1 - lastStats.getTableHitRate()),
+            100 * lastStats.getTableCutoffRate());
+  }
+
+  /**
+   * Returns the number of nodes searched by all threads during the last
+   * chooseMove(), for comparing parallel and serial searches.
+   */
+  public long getNodeCount() {
+    return lastStats.getNodes();
   }
 
   /**
    * Internally records the move (updates the game board) as a move by "this" player.
+   *
+   * In the add phase, plays the opening book's move if it has one.  Otherwise searches with iterative deepening up to maxDepth within the time budget
+   * (see Search.iterate).  Helper threads, if any, search from depth 1 or 2
+   * on their own boards until the main search is done.  After a ponder hit
+   * that reached maxDepth, plays the pondered move instead.  With pondering
+   * on, starts pondering on the reply the chosen move's line predicts.
    * @return a chosen move by "this" player
    */
   public Move chooseMove() {
 
-    Move chosenMove;
-    if (board.getNumMoves() > 20) { // to save playing time
-      chosenMove = chooseMove(this.playerColor, -1, 1, maxDepth - 2).move;
-    }else{
-      chosenMove = chooseMove(this.playerColor, -1, 1, maxDepth).move;
+    long start = System.nanoTime();
+    stopPondering(0); // the opponent did not reply since the last ponder started
+    Move pondered = ponderedMove;
+    SearchStats ponderStats = ponderedStats;
+    ponderedMove = null;
+    ponderedStats = null;
+    if (book != null && board.getNumMoves() < OpeningBook.ADD_PHASE_MOVES) {
+      bookProbes++;
+      int move = book.lookup(board, playerColor);
+      if (move != 0) {
+        bookHits++;
+        Move chosenMove = BitBoard.toMove(move);
+        SearchStats stats = new SearchStats();
+        stats.fromBook = true;
+        stats.principalVariation = new Move[] {chosenMove};
+        finishStats(stats, start);
+        board.makeMove(chosenMove, this.playerColor);
+        return chosenMove;
+      }
+    }
+
+    long solverNodes = 0;
+    if (solverBudget > 0) {
+      Solution solution = solve(solverBudget);
+      solverNodes = solution.nodes;
+      if (solution.isProven() && solution.line.length > 0) {
+        Move chosenMove = solution.line[0];
+        SearchStats stats = new SearchStats();
+        stats.solverNodes = solution.nodes;
+        stats.fromSolver = true;
+        stats.score = 1;
+        stats.principalVariation = solution.line.clone();
+        finishStats(stats, start);
+        board.makeMove(chosenMove, this.playerColor);
+        startPondering();
+        return chosenMove;
+      }
+    }
+
+    if (pondered != null && ponderStats.completedDepth >= maxDepth) {
+      ponderStats.ponderHit = true;
+      ponderStats.solverNodes = solverNodes;
+      finishStats(ponderStats, start);
+      board.makeMove(pondered, this.playerColor);
+      startPondering();
+      return pondered;
+    }
+
+    if (pondered == null) {
+      table.newSearch(); // after a ponder hit, the ponder's entries are this search's
+    }
+    long budget = timeBudget == null ? 0 : timeBudget.toNanos();
+
+    search.reset();
+    int firstDepth = 1;
+    if (pondered != null) {
+      search.resumeFrom(ponderSearch); // go on where the ponder stopped
+      firstDepth = ponderStats.completedDepth + 1;
     }
+    Future<?>[] running = new Future<?>[helpers.length];
+    for (int i = 0; i < helpers.length; i++) {
+      Search helper = helpers[i];
+      int helperDepth = firstDepth + (i + 1) % 2; // stagger the helpers' iterations
+      helper.setBoard(new BitBoard(board));
+      helper.reset();
+      running[i] = pool.submit(() -> helper.iterate(helperDepth, maxDepth, start, budget));
+    }
+
+    Move chosenMove = search.iterate(firstDepth, maxDepth, start, budget);
 
+    SearchStats stats = search.stats.copy();
+    stats.threads = getThreads();
+    stats.ponderHit = pondered != null;
+    stats.solverNodes = solverNodes;
+    for (int i = 0; i < helpers.length; i++) {
+      helpers[i].stop();
+      try {
+        running[i].get();
+      } catch (InterruptedException | ExecutionException e) {
+        System.out.println("Search helper failed");
+        e.printStackTrace();
+      }
+      stats.add(helpers[i].stats);
+    }
+    finishStats(stats, start);
+
+    if (chosenMove == null) {
+      chosenMove = new Move(); // no valid moves
+    }
     board.makeMove(chosenMove, this.playerColor);
+    startPondering();
     return chosenMove;
   }
 
   /**
-   * Performs the minimax search algorithm with alpha-beta pruning to find the
-   * best move by "this" player within the specified search depth
-   * @param side
-   *    the player to make a move
-   * @param alpha
-   * @param beta
-   * @param depth
-   * @return a Best object that stores the best Move and its score
+   * Starts pondering, if it is on, on the position after the opponent's
+   * reply predicted by the last principal variation, if it has one that is
+   * valid and ends nothing.  The ponder searches without a time budget
+   * until it reaches maxDepth or stopPondering() is called.
    */
-  public Best chooseMove(int side, double alpha, double beta, int depth) {
-    Best myMove = new Best(); // My best move
-    Best reply; // Opponent's best reply
-    DList validMoves = board.validMoves(side);
-//    System.out.println(board.getNextPlayer()+"'s valid moves are : "+validMoves);
-    double boardScore = board.boardEvaluator();
-    if (board.getNextPlayer() == Board.BLACK){
-      boardScore = -1*board.boardEvaluator();
+  private void startPondering() {
+    Move[] line = lastStats.principalVariation;
+    if (!pondering || line.length < 2 || board.isWin(playerColor) || board.isWin(opponentColor)) {
+      return;
     }
-
-    if (depth == 0 || boardScore == 1 || boardScore == -1 ) { // has a winner or stop searching
-      myMove.score = boardScore;
-      return myMove;
+    int reply = BitBoard.moveCode(line[1]);
+    if (reply == 0 || !board.isValidMove(reply, opponentColor)) {
+      return;
     }
-
-    if (validMoves.length() == 0){
-      myMove.move = new Move();
-      myMove.score = 0;
-      return myMove;  //Returns a QUIT move if there are no valid moves.
+    BitBoard next = new BitBoard(board);
+    next.make(reply, opponentColor);
+    if (next.isWin(playerColor) || next.isWin(opponentColor)) {
+      return;
     }
+    table.newSearch();
+    ponderSearch.setBoard(next);
+    ponderSearch.reset();
+    ponders++;
+    ponderReply = reply;
+    ponderStart = System.nanoTime();
+    long start = ponderStart;
+    ponderTask = ponderPool.submit(() -> ponderSearch.iterate(1, maxDepth, start, 0));
+  }
 
-    if (side == this.playerColor) {
-      myMove.score = alpha;
-    } else {
-      myMove.score = beta;
+  /**
+   * Stops the running ponder, if any, and waits for it.  If the opponent's
+   * reply is the one it assumed, counts a ponder hit and keeps its move and
+   * statistics for the next chooseMove().
+   * @param reply
+   *    the opponent's packed reply, or 0 to cancel the ponder
+   */
+  private void stopPondering(int reply) {
+    if (ponderTask == null) {
+      return;
     }
-
+    ponderSearch.stop();
+    Move move = null;
     try {
-      for (DListNode nodeM: validMoves) {
-        Move m = (Move)nodeM.item();
-        board.makeMove(m, side); // Modifies "this" Grid
-        reply = chooseMove(this.opponentColor, alpha, beta, depth-1);
-        reply.score *= 0.99; // encourage fewer moves
-        board.undoMove(m, side); // Restores "this" Grid
-        if (side == this.playerColor && reply.score > myMove.score) {
-          myMove.move = m;
-          myMove.score = reply.score;
-          alpha = reply.score;
-        } else if (side == this.opponentColor && reply.score < myMove.score) {
-          myMove.move = m;
-          myMove.score = reply.score;
-          beta = reply.score;
-        }
-        if (alpha >= beta) { return myMove; }
-      }
-    }catch (InvalidNodeException e){
-      System.out.println("Invalid node when updating myMove");
+      move = ponderTask.get();
+    } catch (InterruptedException | ExecutionException e) {
+      System.out.println("Ponder search failed");
       e.printStackTrace();
     }
+    ponderTask = null;
+    long nanos = System.nanoTime() - ponderStart;
+    ponderNanos += nanos;
+    if (reply == ponderReply && move != null) {
+      ponderHits++;
+      ponderHitNanos += nanos;
+      ponderedMove = move;
+      ponderedStats = ponderSearch.stats.copy();
+    }
+  }
 
-    return myMove;
+  /**
+   * Completes the statistics of a chooseMove() that started at start, makes
+   * them the last ones and logs them.
+   */
+  private void finishStats(SearchStats stats, long start) {
+    stats.bookProbes = bookProbes;
+    stats.bookHits = bookHits;
+    stats.ponders = ponders;
+    stats.ponderHits = ponderHits;
+    stats.ponderNanos = ponderNanos;
+    stats.ponderHitNanos = ponderHitNanos;
+    stats.elapsedNanos = System.nanoTime() - start;
+    lastStats = stats;
+    if (statsLog != null) {
+      statsLog.println("search color=" + playerColor + " turn=" + board.getNumMoves() + " " + stats.toLogLine());
+    }
+  }
+
+  /**
+   * Performs the minimax search algorithm with alpha-beta pruning to find the
+   * best move by "this" player within the specified search depth.  The search
+   * runs directly on the BitBoard, making and undoing moves in place.  Scores
+   * are from "this" player's point of view.
+   * @param side
+   *    the player to make a move
+   * @param alpha
+   * @param beta
+   * @param depth
+   * @return a Best object that stores the best Move and its score
+   */
+  public Best chooseMove(int side, double alpha, double beta, int depth) {
+    return search.searchRoot(side, alpha, beta, depth);
   }
 
   // If the Move m is legal, records the move as a move by the opponent
@@ -135,6 +753,8 @@ public class MachinePlayer extends Player {
   // illegal, returns false without modifying the internal state of "this"
   // player.  This method allows your opponents to inform you of their moves.
   public boolean opponentMove(Move m) {
+    ponderedMove = null;
+    stopPondering(BitBoard.moveCode(m));
     return board.makeMove(m, this.opponentColor);
   }
 
@@ -143,6 +763,8 @@ public class MachinePlayer extends Player {
   // illegal, returns false without modifying the internal state of "this"
   // player.
   public boolean forceMove(Move m) {
+    stopPondering(0);
+    ponderedMove = null;
     return board.makeMove(m, this.playerColor);
   }
 
@@ -0,0 +1,460 @@
+/* MctsPlayer.java */
+
+package player;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  A Network player that chooses moves by Monte Carlo tree search.  Each
+ *  playout walks down the tree from the current position, choosing moves by
+ *  UCT, adds one node for a move not tried yet, and plays random moves from
+ *  there to the end of the game.  The result is credited to every node
+ *  walked, and the most visited move is played.
+ *
+ *  The tree is kept between moves: after chooseMove(), opponentMove() or
+ *  forceMove(), the node of the move made becomes the root, playouts and
+ *  all, if the tree has it.
+ *
+ *  With more than one thread, all threads grow the one tree (tree
+ *  parallelization).  A thread counts its visit to a node on the way down,
+ *  before its playout has a result, so until then the visit looks like a
+ *  loss to the other threads (a virtual loss) and they spread over other
+ *  moves.  Each node is locked while a thread chooses or adds its child.
+ */
+public class MctsPlayer extends Player {
+
+
+  protected String myName = "mcts";
+  private BitBoard board;
+  private int playerColor;
+  private int opponentColor;
+  private Duration timeBudget; // null plays a fixed number of playouts per move
+  private int playouts; // per move, if there is no time budget
+
+  private Node root;
+  private int rootSide; // player to move at the root
+
+  private final SplittableRandom seeds = new SplittableRandom(0x6d637473L); // split for each worker
+  private final Worker worker = new Worker(seeds.split()); // runs on the caller's thread
+  private Worker[] helpers = new Worker[0];
+  private ExecutorService pool;
+
+  // Statistics of the last chooseMove()
+  private long lastPlayouts;
+  private long lastNanos;
+  private long lastReusedPlayouts;
+
+  // Time budget of players created without a number of playouts
+  public static final Duration DEFAULT_TIME_BUDGET = MachinePlayer.DEFAULT_TIME_BUDGET;
+
+  // Exploration weight of UCT, for results from 0 to 1
+  static final double EXPLORATION = 0.7;
+
+  // Playouts still undecided after this many moves are draws
+  static final int MAX_PLAYOUT_MOVES = 200;
+
+  // Winner of an undecided position or a drawn playout
+  private static final int NO_WINNER = Playout.NO_WINNER;
+
+
+  /**
+   * Creates an MCTS player with the given color that plays out as many
+   * games as it can within DEFAULT_TIME_BUDGET per move.  Color is either 0
+   * (black) or 1 (white).
+   * @param color
+   */
+  public MctsPlayer(int color) {
+    this(color, DEFAULT_TIME_BUDGET);
+  }
+
+  /**
+   * Creates an MCTS player with the given color that plays out the given
+   * number of games per move, however long it takes.
+   * @param color
+   * @param playouts
+   */
+  public MctsPlayer(int color, int playouts) {
+    assert (color == 0 || color == 1):
+            "Wrong color: " + color;
+    if (color == 0){
+      this.playerColor = Board.BLACK;
+      this.opponentColor = Board.WHITE;
+    }else{
+      this.playerColor = Board.WHITE;
+      this.opponentColor = Board.BLACK;
+    }
+    this.board = new BitBoard(8);
+    setPlayouts(playouts);
+    newRoot(Board.WHITE);
+  }
+
+  /**
+   * Creates an MCTS player with the given color that plays out games until
+   * the time budget of each move is spent.
+   * @param color
+   * @param timeBudget
+   *    time per move
+   */
+  public MctsPlayer(int color, Duration timeBudget) {
+    this(color, Integer.MAX_VALUE);
+    setTimeBudget(timeBudget);
+  }
+
+  /**
+   * Sets the number of playouts of each move, for players without a time budget.
+   * @param playouts
+   */
+  public void setPlayouts(int playouts) {
+    if (playouts < 1) {
+      throw new IllegalArgumentException("Number of playouts must be at least 1: " + playouts);
+    }
+    this.playouts = playouts;
+  }
+
+  /**
+   * Sets the time budget of each move.
+   * @param timeBudget
+   *    time per move, or null to play the set number of playouts
+   */
+  public void setTimeBudget(Duration timeBudget) {
+    this.timeBudget = timeBudget;
+  }
+
+  /**
+   * Returns the time budget of each move, or null if there is none.
+   */
+  public Duration getTimeBudget() {
+    return timeBudget;
+  }
+
+  /**
+   * Sets the number of threads growing the tree.  1 searches serially.
+   * @param threads
+   */
+  public void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of search threads must be at least 1: " + threads);
+    }
+    if (pool != null) {
+      pool.shutdownNow();
+      pool = null;
+    }
+    helpers = new Worker[threads - 1];
+    for (int i = 0; i < helpers.length; i++) {
+      helpers[i] = new Worker(seeds.split());
+    }
+    if (helpers.length > 0) {
+      pool = Executors.newFixedThreadPool(helpers.length, r -> {
+        Thread t = new Thread(r, "mcts helper");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+  }
+
+  /**
+   * Returns the number of threads growing the tree.
+   */
+  public int getThreads() {
+    return helpers.length + 1;
+  }
+
+  /**
+   * Returns the number of games played out by all threads during the last chooseMove().
+   */
+  public long getPlayouts() {
+    return lastPlayouts;
+  }
+
+  /**
+   * Returns the number of games played out per second during the last chooseMove().
+   */
+  public double getPlayoutsPerSecond() {
+    return lastNanos == 0 ? 0 : lastPlayouts * 1e9 / lastNanos;
+  }
+
+  /**
+   * Returns the number of playouts the last chooseMove() found in the tree
+   * kept from earlier moves.
+   */
+  public long getReusedPlayouts() {
+    return lastReusedPlayouts;
+  }
+
+  /**
+   * Internally records the move (updates the game board) as a move by "this" player.
+   *
+   * Grows the tree until the playouts or the time budget of the move are
+   * spent, on all threads, and plays the root's most visited move.
+   * @return a chosen move by "this" player
+   */
+  public Move chooseMove() {
+    long start = System.nanoTime();
+    if (rootSide != playerColor) {
+      newRoot(playerColor);
+    }
+    lastReusedPlayouts = root.visits;
+
+    long deadline = timeBudget == null ? Long.MAX_VALUE : start + timeBudget.toNanos();
+    AtomicLong started = new AtomicLong();
+    long limit = timeBudget == null ? playouts : Long.MAX_VALUE;
+    Future<?>[] running = new Future<?>[helpers.length];
+    for (int i = 0; i < helpers.length; i++) {
+      Worker helper = helpers[i];
+      running[i] = pool.submit(() -> helper.run(deadline, started, limit));
+    }
+    worker.run(deadline, started, limit);
+    for (int i = 0; i < helpers.length; i++) {
+      try {
+        running[i].get();
+      } catch (InterruptedException | ExecutionException e) {
+        System.out.println("MCTS helper failed");
+        e.printStackTrace();
+      }
+    }
+    lastPlayouts = Math.min(started.get(), limit);
+    lastNanos = System.nanoTime() - start;
+
+    Node best = null;
+    for (int i = 0; i < root.numChildren; i++) {
+      Node child = root.children[i];
+      if (best == null || child.visits > best.visits) {
+        best = child;
+      }
+    }
+    if (best == null) {
+      return new Move();  // a QUIT move if there are no valid moves.
+    }
+    Move chosenMove = BitBoard.toMove(best.move);
+    board.makeMove(chosenMove, playerColor);
+    root = best;
+    rootSide = opponentColor;
+    return chosenMove;
+  }
+
+  // If the Move m is legal, records the move as a move by the opponent
+  // (updates the internal game board) and returns true.  If the move is
+  // illegal, returns false without modifying the internal state of "this"
+  // player.  This method allows your opponents to inform you of their moves.
+  public boolean opponentMove(Move m) {
+    return makeMove(m, opponentColor);
+  }
+
+  // If the Move m is legal, records the move as a move by "this" player
+  // (updates the internal game board) and returns true.  If the move is
+  // illegal, returns false without modifying the internal state of "this"
+  // player.
+  public boolean forceMove(Move m) {
+    return makeMove(m, playerColor);
+  }
+
+  /**
+   * Makes move m by player on the board if it is legal, and moves the root
+   * to its node, or to a new one if the tree does not have it.
+   */
+  private boolean makeMove(Move m, int player) {
+    if (!board.makeMove(m, player)) {
+      return false;
+    }
+    Node next = null;
+    if (player == rootSide && m.moveKind != Move.QUIT) {
+      int move = BitBoard.moveCode(m);
+      for (int i = 0; i < root.numChildren; i++) {
+        if (root.children[i].move == move) {
+          next = root.children[i];
+        }
+      }
+    }
+    if (next == null) {
+      newRoot(Board.otherPlayer(player));
+    } else {
+      root = next;
+      rootSide = Board.otherPlayer(player);
+    }
+    return true;
+  }
+
+  /**
+   * Starts a new tree at the board's position, with side to move.
+   */
+  private void newRoot(int side) {
+    root = new Node(0, Board.otherPlayer(side), NO_WINNER);
+    rootSide = side;
+  }
+
+  /**
+   * Returns the half points a result gives player: 2 for a win, 1 for a draw.
+   */
+  private static int halfPoints(int player, int winner) {
+    return winner == player ? 2 : winner == NO_WINNER ? 1 : 0;
+  }
+
+  /**
+   * A position of the tree, reached by a move.
+   *
+   * Its own fields are guarded by its lock.  Its visits and points, which
+   * its parent compares when choosing among its children, are guarded by
+   * its parent's lock, or by its own at the root.
+   */
+  private static final class Node {
+    final int move; // packed move that led here, 0 at the root
+    final int mover; // player who made move
+    int winner; // player who won by move, or NO_WINNER
+
+    int numMoves = -1; // valid moves of the position, -1 until counted
+    int offset; // the i-th child added is valid move (offset + i * stride) % numMoves
+    int stride;
+    Node[] children = new Node[0];
+    int numChildren;
+    int childVisits; // sum of the children's visits
+
+    int visits; // playouts through this node, counted on the way down
+    long points; // half points of mover in the visits that have finished
+
+    Node(int move, int mover, int winner) {
+      this.move = move;
+      this.mover = mover;
+      this.winner = winner;
+    }
+  }
+
+  /**
+   * Grows the tree on one thread, with a board, a move buffer and a playout
+   * engine of its own.
+   */
+  private final class Worker {
+    private final BitBoard scratch = new BitBoard(8);
+    private final int[] moves = new int[BitBoard.MAX_MOVES];
+    private final Playout playout;
+    private Node[] path = new Node[64];
+
+    Worker(SplittableRandom random) {
+      playout = new Playout(random);
+    }
+
+    /**
+     * Plays out games until the deadline passes or started reaches limit.
+     */
+    void run(long deadline, AtomicLong started, long limit) {
+      while (System.nanoTime() < deadline && started.incrementAndGet() <= limit) {
+        playout();
+      }
+    }
+
+    /**
+     * Walks down the tree by UCT to a new or final node, plays a random
+     * game from there, and credits the result to the nodes walked.
+     */
+    private void playout() {
+      scratch.copyFrom(board);
+      Node node = root;
+      int side = rootSide;
+      int length = 0;
+      synchronized (node) {
+        node.visits++;
+      }
+      int winner;
+      while (true) {
+        path[length++] = node;
+        if (length == path.length) {
+          path = Arrays.copyOf(path, 2 * length);
+        }
+        Node child;
+        boolean added = false;
+        synchronized (node) {
+          if (node.winner != NO_WINNER) {
+            winner = node.winner;
+            break;
+          }
+          if (node.numMoves < 0) {
+            node.numMoves = scratch.generateMoves(side, moves);
+            if (node.numMoves > 0) {
+              node.offset = playout.nextInt(node.numMoves);
+              node.stride = 1 + playout.nextInt(node.numMoves);
+              while (gcd(node.stride, node.numMoves) != 1) {
+                node.stride--;
+              }
+            }
+          }
+          if (node.numMoves == 0) {
+            node.winner = Board.otherPlayer(side); // a player that cannot move quits
+            winner = node.winner;
+            break;
+          }
+          if (node.numChildren < node.numMoves) {
+            child = addChild(node, side);
+            added = true;
+          } else {
+            child = select(node);
+          }
+          child.visits++;
+          node.childVisits++;
+        }
+        if (!added) {
+          scratch.make(child.move, side);
+        }
+        side = Board.otherPlayer(side);
+        node = child;
+        if (added) {
+          path[length++] = node;
+          winner = node.winner != NO_WINNER ? node.winner : playout.finish(scratch, side, MAX_PLAYOUT_MOVES);
+          break;
+        }
+      }
+
+      synchronized (path[0]) {
+        path[0].points += halfPoints(path[0].mover, winner);
+      }
+      for (int i = 1; i < length; i++) {
+        synchronized (path[i - 1]) {
+          path[i].points += halfPoints(path[i].mover, winner);
+        }
+      }
+    }
+
+    /**
+     * Adds the next untried move of node, with side to move, as its child,
+     * and makes the move on the scratch board.  The caller holds node's lock.
+     */
+    private Node addChild(Node node, int side) {
+      scratch.generateMoves(side, moves);
+      int move = moves[(int) ((node.offset + (long) node.numChildren * node.stride) % node.numMoves)];
+      scratch.make(move, side);
+      int other = Board.otherPlayer(side);
+      int winner = scratch.isWin(other) ? other : scratch.isWin(side) ? side : NO_WINNER;
+      Node child = new Node(move, side, winner);
+      if (node.numChildren == node.children.length) {
+        node.children = Arrays.copyOf(node.children, Math.max(4, 2 * node.numChildren));
+      }
+      node.children[node.numChildren++] = child;
+      return child;
+    }
+
+    /**
+     * Returns the child of node with the best upper confidence bound.  The
+     * caller holds node's lock.
+     */
+    private Node select(Node node) {
+      double logVisits = Math.log(node.childVisits);
+      Node best = null;
+      double bestValue = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < node.numChildren; i++) {
+        Node child = node.children[i];
+        double value = child.points / (2.0 * child.visits) + EXPLORATION * Math.sqrt(logVisits / child.visits);
+        if (value > bestValue) {
+          bestValue = value;
+          best = child;
+        }
+      }
+      return best;
+    }
+  }
+
+  private static int gcd(int a, int b) {
+    return b == 0 ? a : gcd(b, a % b);
+  }
+
+}
@@ -0,0 +1,228 @@
+/* OpeningBook.java */
+
+package player;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ *  A book of precomputed moves for positions of the add phase, read from a
+ *  memory-mapped file.  Positions are keyed by the Zobrist key of their
+ *  canonical form (see BitBoard.canonicalTransform), so one entry serves
+ *  every mirror image of a position and its color-swapped transposes, and
+ *  moves are stored mapped into the canonical form.
+ *
+ *  File layout, big-endian: the int MAGIC, the int VERSION, the int number
+ *  of entries, then the entries sorted by key, each a long key and a short
+ *  packed move (see BitBoard.moveCode).  Lookups binary search the mapped
+ *  file with absolute reads, so a book can be shared by many threads.
+ *
+ *  Build a book offline with
+ *
+ *    java player.OpeningBook file [games] [depth] [plies] [eval] [seed]
+ *
+ *  which plays games from the empty board, with some random moves for
+ *  variety, and stores for every add-phase position met within the first
+ *  plies moves the move a search to the given depth picks.
+ */
+public class OpeningBook {
+
+  static final int MAGIC = 0x4e57424b; // "NWBK"
+  static final int VERSION = 2; // 1 folded the mirrors only
+  private static final int HEADER_BYTES = 12;
+  private static final int ENTRY_BYTES = 10;
+
+  // Book MachinePlayer(color) opens if it exists in the working directory
+  public static final String DEFAULT_FILE = "opening.book";
+
+  // Moves of the add phase; the book holds no later positions
+  static final int ADD_PHASE_MOVES = 20;
+
+  private static OpeningBook defaultBook;
+  private static boolean defaultOpened;
+
+  private final ByteBuffer entries;
+  private final int size;
+
+  private OpeningBook(ByteBuffer buffer, String file) throws IOException {
+    if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not an opening book: " + file);
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported opening book version " + buffer.getInt(4) + ": " + file);
+    }
+    size = buffer.getInt(8);
+    if (size < 0 || (long) HEADER_BYTES + (long) size * ENTRY_BYTES > buffer.capacity()) {
+      throw new IOException("Truncated opening book: " + file);
+    }
+    buffer.position(HEADER_BYTES);
+    entries = buffer.slice();
+  }
+
+  /**
+   * Memory-maps a book file.
+   */
+  public static OpeningBook open(String file) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+      return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+    }
+  }
+
+  /**
+   * Returns the book in DEFAULT_FILE, mapped once per JVM, or null if there
+   * is no such file or it cannot be read.
+   */
+  public static synchronized OpeningBook openDefault() {
+    if (!defaultOpened) {
+      defaultOpened = true;
+      if (Files.isReadable(Paths.get(DEFAULT_FILE))) {
+        try {
+          defaultBook = open(DEFAULT_FILE);
+        } catch (IOException e) {
+          System.out.println("Cannot read the opening book: " + e.getMessage());
+        }
+      }
+    }
+    return defaultBook;
+  }
+
+  /**
+   * Returns the number of positions in the book.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the book move for player in board's position, or 0 if the
+   * position is not in the book.  The move is valid.
+   */
+  int lookup(BitBoard board, int player) {
+    if (board.getNumMoves() >= ADD_PHASE_MOVES) {
+      return 0;
+    }
+    int t = board.canonicalTransform();
+    int move = find(board.transformedKey(t));
+    if (move == 0) {
+      return 0;
+    }
+    move = BitBoard.transformMove(move, BitBoard.inverseTransform(t));
+    return board.isValidMove(move, player) ? move : 0; // a key collision
+  }
+
+  /**
+   * Binary searches the entries for key and returns its move, or 0.
+   */
+  private int find(long key) {
+    int lo = 0, hi = size - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      long k = entries.getLong(mid * ENTRY_BYTES);
+      if (k < key) {
+        lo = mid + 1;
+      } else if (k > key) {
+        hi = mid - 1;
+      } else {
+        return entries.getShort(mid * ENTRY_BYTES + 8);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Writes a book of canonical keys and their packed canonical moves.
+   */
+  static void write(String file, Map<Long, Integer> moves) throws IOException {
+    long[] keys = new long[moves.size()];
+    int n = 0;
+    for (long key : moves.keySet()) {
+      keys[n++] = key;
+    }
+    Arrays.sort(keys);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(keys.length);
+      for (long key : keys) {
+        out.writeLong(key);
+        out.writeShort(moves.get(key));
+      }
+    }
+  }
+
+  /**
+   * Builds book moves by self-play.  Each game starts from the empty board;
+   * at every ply below plies the position's book move is searched (once per
+   * canonical position) and played, except that with probability 1/4 a
+   * random move is played instead, so that games spread out.
+   * @return the canonical move of every position met, by canonical key
+   */
+  static Map<Long, Integer> build(int games, int depth, int plies, Evaluator evaluator, long seed) {
+    Map<Long, Integer> book = new HashMap<Long, Integer>();
+    Random random = new Random(seed);
+    int[] moves = new int[BitBoard.MAX_MOVES];
+    plies = Math.min(plies, ADD_PHASE_MOVES);
+    for (int g = 0; g < games; g++) {
+      BitBoard b = new BitBoard(8);
+      List<Move> history = new ArrayList<Move>();
+      int side = Board.WHITE;
+      for (int ply = 0; ply < plies; ply++) {
+        int t = b.canonicalTransform();
+        long key = b.transformedKey(t);
+        Integer canonical = book.get(key);
+        if (canonical == null) {
+          MachinePlayer searcher = new MachinePlayer(side, depth, MachinePlayer.DEFAULT_TABLE_SIZE, evaluator);
+          int mover = Board.WHITE;
+          for (Move m : history) {
+            if (mover == side) {
+              searcher.forceMove(m);
+            } else {
+              searcher.opponentMove(m);
+            }
+            mover = Board.otherPlayer(mover);
+          }
+          Move best = searcher.chooseMove();
+          if (best.moveKind == Move.QUIT) {
+            break;
+          }
+          canonical = BitBoard.transformMove(BitBoard.moveCode(best), t);
+          book.put(key, canonical);
+        }
+        int move = BitBoard.transformMove(canonical, BitBoard.inverseTransform(t));
+        if (random.nextInt(4) == 0) {
+          move = moves[random.nextInt(b.generateMoves(side, moves))];
+        }
+        Move m = BitBoard.toMove(move);
+        b.makeMove(m, side);
+        history.add(m);
+        if (b.isWin(Board.WHITE) || b.isWin(Board.BLACK)) {
+          break;
+        }
+        side = Board.otherPlayer(side);
+      }
+    }
+    return book;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.out.println("Usage: java player.OpeningBook file [games] [depth] [plies] [eval] [seed]");
+      System.exit(2);
+    }
+    String file = args[0];
+    int games = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    int depth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+    int plies = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+    Evaluator evaluator = args.length > 4 ? Tournament.evaluator(args[4]) : new ConnectionEvaluator();
+    long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+
+    long start = System.nanoTime();
+    Map<Long, Integer> book = build(games, depth, plies, evaluator, seed);
+    write(file, book);
+    System.out.printf("%d positions from %d games at depth %d written to %s in %.1f seconds%n",
+            book.size(), games, depth, file, (System.nanoTime() - start) / 1e9);
+  }
+}
@@ -0,0 +1,153 @@
+package player;
+
+import java.util.SplittableRandom;
+
+/**
+ * A package-private engine of random playouts: plays uniformly random valid
+ * moves from a position until a player has a network.
+ *
+ * A random move is drawn without listing the valid moves.  In the add phase
+ * the valid squares are one mask, of which a random set bit is taken.  In
+ * the step phase a random chip and a random square of the empty squares the
+ * player may use are drawn until the step makes no cluster (rejection
+ * sampling).  Every chip has the same candidate squares, so every valid
+ * step is equally likely, and as clusters rule out few squares a step
+ * rarely takes more than one draw.
+ *
+ * A Playout is not thread-safe: give each thread its own, with a generator
+ * split from a common one (see split).
+ */
+class Playout {
+    // Winner of a playout that reached its move limit
+    static final int NO_WINNER = -1;
+
+    // Rejected draws after which a step is chosen from the listed moves
+    private static final int MAX_DRAWS = 64;
+
+    private final SplittableRandom random;
+    private final BitBoard board = new BitBoard(8); // played on by play()
+    private final int[] moves = new int[BitBoard.MAX_MOVES]; // listed moves of the fallback
+
+    // Totals since the Playout was created
+    private long playouts;
+    private long movesPlayed;
+
+    /**
+     * Creates a playout engine drawing from random.
+     */
+    Playout(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Creates a playout engine with a generator seeded with seed, so that
+     * its playouts can be repeated.
+     */
+    Playout(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    /**
+     * Returns a new engine whose generator is split from this one's, for
+     * another thread.
+     */
+    Playout split() {
+        return new Playout(random.split());
+    }
+
+    /**
+     * Returns a uniformly random valid move of player on b, packed, or 0 if
+     * there is none.
+     */
+    int randomMove(BitBoard b, int player) {
+        long own = b.chips(player);
+        long targets = b.empty() & b.addMask(player);
+        if (b.getNumMoves() < 20) {
+            long ok = targets & ~BitBoard.clusterMask(own);
+            int n = Long.bitCount(ok);
+            return n == 0 ? 0 : BitBoard.addMove(nthSquare(ok, random.nextInt(n)));
+        }
+        int chips = Long.bitCount(own);
+        int squares = Long.bitCount(targets);
+        if (chips == 0 || squares == 0) {
+            return 0;
+        }
+        for (int i = 0; i < MAX_DRAWS; i++) {
+            int from = nthSquare(own, random.nextInt(chips));
+            int to = nthSquare(targets, random.nextInt(squares));
+            if (!b.isCluster(to, own & ~(1L << from))) {
+                return BitBoard.stepMove(from, to);
+            }
+        }
+        int n = b.generateMoves(player, moves); // almost every step is a cluster
+        return n == 0 ? 0 : moves[random.nextInt(n)];
+    }
+
+    /**
+     * Plays a random game on a copy of start, side to move first, and
+     * returns the winner, or NO_WINNER if maxMoves moves win nothing.
+     */
+    int play(BitBoard start, int side, int maxMoves) {
+        board.copyFrom(start);
+        return finish(board, side, maxMoves);
+    }
+
+    /**
+     * Plays a random game on b itself, side to move first, and returns the
+     * winner like play.  A player without a valid move loses, as one that
+     * quits does, and a move completing networks for both players loses
+     * for the player who moved.  An add can only block the other player's
+     * lines, so after one only the mover's network is checked.
+     */
+    int finish(BitBoard b, int side, int maxMoves) {
+        playouts++;
+        for (int i = 0; i < maxMoves; i++) {
+            int other = Board.otherPlayer(side);
+            int move = randomMove(b, side);
+            if (move == 0) {
+                return other;
+            }
+            b.make(move, side);
+            movesPlayed++;
+            if (BitBoard.moveKind(move) == Move.STEP && b.isWin(other)) {
+                return other;
+            }
+            if (b.isWin(side)) {
+                return side;
+            }
+            side = other;
+        }
+        return NO_WINNER;
+    }
+
+    /**
+     * Returns a random int from 0 to bound - 1, from this engine's generator.
+     */
+    int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    /**
+     * Returns the number of playouts played so far.
+     */
+    long getPlayouts() {
+        return playouts;
+    }
+
+    /**
+     * Returns the number of moves played in all playouts so far.
+     */
+    long getMoves() {
+        return movesPlayed;
+    }
+
+    /**
+     * Returns the square of the set bit of mask with n lower set bits.
+     */
+    private static int nthSquare(long mask, int n) {
+        for (int i = 0; i < n; i++) {
+            mask &= mask - 1;
+        }
+        return Long.numberOfTrailingZeros(mask);
+    }
+}
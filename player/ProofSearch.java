@@ -0,0 +1,375 @@
+/* ProofSearch.java */
+
+package player;
+
+/**
+ *  A package-private solver that proves or disproves a forced network win
+ *  by depth-first proof-number search (df-pn).
+ *
+ *  Positions where the attacker, the player to move at the root, is to
+ *  move are OR nodes: one winning move proves them.  Positions where the
+ *  defender is to move are AND nodes: every reply must lose.  Each
+ *  position has a proof number, how many positions at least must still be
+ *  proven to prove it, and a disproof number, likewise to disprove it.
+ *  The search always expands the most proving position, staying below a
+ *  child's thresholds so that it backs up only when another line becomes
+ *  cheaper.
+ *
+ *  A win must come within a ply limit, so that games that go round in
+ *  circles end: a position with no plies left, or seen before on the
+ *  current line, is disproven.  The table keeps each result with the plies
+ *  it had left, and reuses a proof only with at least as many and a
+ *  disproof only with at most as many.  Disproofs through a repeated
+ *  position may still be reused on other lines; they can hide a win in
+ *  the step phase, but never make a false proof.
+ *
+ *  BitBoard.winningMove looks for a move that completes a network at once:
+ *  the attacker's as soon as a position is reached, which settles most OR
+ *  nodes next to the end of a line without expanding them, and the
+ *  defender's, which are rarer, only when an AND node is searched.
+ */
+class ProofSearch {
+
+  private final BitBoard board;
+  private final Table table;
+  private int attacker;
+  private int defender;
+  private int maxPlies;
+
+  // Search state
+  private long nodes;
+  private long nodeLimit;
+  private int[][] moveBuffer = new int[MAX_PLIES + 1][BitBoard.MAX_MOVES]; // moves of each ply
+  private int[][] proofBuffer = new int[MAX_PLIES + 1][BitBoard.MAX_MOVES]; // proof numbers of their children
+  private int[][] disproofBuffer = new int[MAX_PLIES + 1][BitBoard.MAX_MOVES];
+  private long[] pathKeys = new long[MAX_PLIES + 1]; // keys of the positions on the current line
+  private int[] threatBuffer = new int[BitBoard.MAX_MOVES];
+
+  // Most plies a winning line may have
+  static final int MAX_PLIES = MachinePlayer.MAX_DEPTH;
+
+  // Proof and disproof numbers this large are infinite
+  static final int INFINITY = Integer.MAX_VALUE;
+
+  // Proof and disproof numbers packed into one long: proof << 32 | disproof
+  private static final long PROVEN = (long) 0 << 32 | INFINITY;
+  private static final long DISPROVEN = (long) INFINITY << 32;
+  private static final long UNSOLVED = 1L << 32 | 1;
+
+  // Mixed into the keys when black attacks, as proofs are the attacker's
+  private static final long BLACK_ATTACKS = 0x5a3c96e1d2b4f087L;
+
+  /**
+   * Creates a solver with a table of at most the given number of megabytes.
+   */
+  ProofSearch(int megabytes) {
+    this.board = new BitBoard(8);
+    this.table = new Table(megabytes);
+  }
+
+  /**
+   * Tries to prove that the player to move on start can complete a
+   * network within plies plies, expanding at most nodeLimit positions.
+   * @param start
+   *    the position, which is not changed
+   * @param player
+   *    the player to move on start
+   */
+  Solution solve(BitBoard start, int player, int plies, long nodeLimit) {
+    if (plies < 1 || plies > MAX_PLIES) {
+      throw new IllegalArgumentException("Solver plies must be 1 to " + MAX_PLIES + ": " + plies);
+    }
+    long time = System.nanoTime();
+    board.copyFrom(start);
+    attacker = player;
+    defender = Board.otherPlayer(player);
+    maxPlies = plies;
+    nodes = 0;
+    this.nodeLimit = nodeLimit;
+
+    Solution solution = new Solution();
+    solution.plies = plies;
+    long result;
+    if (board.isWin(Board.WHITE) || board.isWin(Board.BLACK)) {
+      result = DISPROVEN; // the game is over
+    } else {
+      pathKeys[0] = key();
+      result = search(attacker, 0, INFINITY, INFINITY);
+    }
+    if (proof(result) == 0) {
+      solution.result = Solution.PROVEN;
+      solution.line = line();
+    } else if (disproof(result) == 0) {
+      solution.result = Solution.DISPROVEN;
+    }
+    solution.nodes = nodes;
+    solution.elapsedNanos = System.nanoTime() - time;
+    return solution;
+  }
+
+  /**
+   * Searches the position at the given ply, side to move, until it is
+   * solved, its proof number reaches proofLimit or its disproof number
+   * disproofLimit, or the node limit is reached.  Stores and returns its
+   * proof and disproof numbers, packed.
+   */
+  private long search(int side, int ply, int proofLimit, int disproofLimit) {
+    nodes++;
+    boolean or = side == attacker;
+    int[] moves = moveBuffer[ply];
+    int[] proofs = proofBuffer[ply];
+    int[] disproofs = disproofBuffer[ply];
+    long key = key();
+    int remaining = maxPlies - ply;
+    if (!or && board.winningMove(defender, threatBuffer) != 0) {
+      table.store(key, INFINITY, 0, Table.ANY_PLIES);
+      return DISPROVEN;
+    }
+    int numMoves = board.generateMoves(side, moves);
+    if (numMoves == 0) {
+      return or ? DISPROVEN : PROVEN; // a player that cannot move quits
+    }
+    for (int i = 0; i < numMoves; i++) {
+      board.make(moves[i], side);
+      long child = child(side, ply + 1);
+      board.unmake(moves[i], side);
+      proofs[i] = proof(child);
+      disproofs[i] = disproof(child);
+    }
+
+    while (true) {
+      // an OR node needs one child proven and all disproven, an AND node the other way round
+      int[] cheap = or ? proofs : disproofs;
+      int[] all = or ? disproofs : proofs;
+      int best = 0;
+      int second = INFINITY;
+      long sum = 0;
+      for (int i = 0; i < numMoves; i++) {
+        if (cheap[i] < cheap[best]) {
+          second = cheap[best];
+          best = i;
+        } else if (i > 0 && cheap[i] < second) {
+          second = cheap[i];
+        }
+        sum = Math.min(sum + all[i], INFINITY);
+      }
+      int min = cheap[best];
+      long result = or ? pack(min, (int) sum) : pack((int) sum, min);
+      int limit = or ? proofLimit : disproofLimit;
+      int otherLimit = or ? disproofLimit : proofLimit;
+      if (min >= limit || sum >= otherLimit || min == 0 || sum == INFINITY || nodes >= nodeLimit) {
+        table.store(key, proof(result), disproof(result), remaining);
+        return result;
+      }
+
+      // search the best child until it is no longer the best, or its
+      // sibling's sum would reach the limit
+      int childLimit = second == INFINITY ? limit : Math.min(limit, second + 1);
+      int childOtherLimit = otherLimit == INFINITY ? INFINITY : (int) (otherLimit - sum + all[best]);
+      int m = moves[best];
+      board.make(m, side);
+      pathKeys[ply + 1] = key();
+      long child = or ? search(defender, ply + 1, childLimit, childOtherLimit)
+              : search(attacker, ply + 1, childOtherLimit, childLimit);
+      board.unmake(m, side);
+      proofs[best] = proof(child);
+      disproofs[best] = disproof(child);
+    }
+  }
+
+  /**
+   * Returns the proof and disproof numbers of the position at the given
+   * ply, reached by a move of mover: settled if it is won, out of plies, a
+   * repetition or known to the table, or if the attacker is to move and
+   * can win at once; 1 and 1 otherwise.
+   */
+  private long child(int mover, int ply) {
+    int next = Board.otherPlayer(mover);
+    if (board.isWin(next)) {
+      return next == attacker ? PROVEN : DISPROVEN; // a move completing both networks loses
+    }
+    if (board.isWin(mover)) {
+      return mover == attacker ? PROVEN : DISPROVEN;
+    }
+    int remaining = maxPlies - ply;
+    if (remaining == 0) {
+      return DISPROVEN;
+    }
+    long key = key();
+    for (int p = 0; p < ply; p++) {
+      if (pathKeys[p] == key) {
+        return DISPROVEN; // going round in circles wins nothing
+      }
+    }
+    long entry = table.probe(key, remaining);
+    if (entry != -1) {
+      return entry;
+    }
+    if (next == attacker && board.winningMove(attacker, threatBuffer) != 0) {
+      table.store(key, 0, INFINITY, 1);
+      return PROVEN;
+    }
+    return UNSOLVED; // the defender's wins are looked for when it is searched
+  }
+
+  /**
+   * Returns the table key of the board: its Zobrist key, told apart by
+   * which player attacks.
+   */
+  private long key() {
+    return attacker == Board.BLACK ? board.getKey() ^ BLACK_ATTACKS : board.getKey();
+  }
+
+  /**
+   * Follows the proof from the root: a winning move of the attacker where
+   * there is one, else a move to a proven position; for the defender, a
+   * reply after which the attacker cannot win at once where there is one.
+   * Stops early if the table has lost a position of the proof.
+   */
+  private Move[] line() {
+    int[] played = new int[maxPlies];
+    int length = 0;
+    int side = attacker;
+    int[] moves = new int[BitBoard.MAX_MOVES];
+    while (length < maxPlies) {
+      int chosen = 0;
+      if (side == attacker) {
+        chosen = board.winningMove(attacker, threatBuffer);
+        if (chosen != 0) {
+          played[length++] = chosen;
+          board.make(chosen, side);
+          break;
+        }
+      }
+      int n = board.generateMoves(side, moves);
+      for (int i = 0; i < n && chosen == 0; i++) {
+        board.make(moves[i], side);
+        pathKeys[length + 1] = key();
+        long child = child(side, length + 1);
+        boolean quick = side == defender && board.winningMove(attacker, threatBuffer) != 0;
+        board.unmake(moves[i], side);
+        if (proof(child) == 0 && (side == attacker || !quick)) {
+          chosen = moves[i];
+        }
+      }
+      if (chosen == 0 && side == defender && n > 0) {
+        chosen = moves[0]; // every reply loses at once
+      }
+      if (chosen == 0) {
+        break;
+      }
+      played[length++] = chosen;
+      board.make(chosen, side);
+      pathKeys[length] = key();
+      if (board.isWin(Board.WHITE) || board.isWin(Board.BLACK)) {
+        break;
+      }
+      side = Board.otherPlayer(side);
+    }
+    Move[] line = new Move[length];
+    for (int i = length - 1; i >= 0; i--) {
+      side = i % 2 == 0 ? attacker : defender;
+      board.unmake(played[i], side);
+      line[i] = BitBoard.toMove(played[i]);
+    }
+    return line;
+  }
+
+  private static long pack(int proof, int disproof) {
+    return (long) proof << 32 | disproof;
+  }
+
+  static int proof(long numbers) {
+    return (int) (numbers >>> 32);
+  }
+
+  static int disproof(long numbers) {
+    return (int) numbers;
+  }
+
+  /**
+   * A fixed-size table of proof and disproof numbers keyed by Zobrist key,
+   * two entries to a bucket.  A new entry replaces the one for the same
+   * position, else an empty one, else an unsolved one before a solved one,
+   * so that solved positions, the ones a proof is read back from, last.
+   */
+  private static final class Table {
+    // Plies left stored with disproofs that hold however many there are
+    static final int ANY_PLIES = 127;
+
+    private static final int ENTRY_BYTES = 17;
+
+    private final long[] keys;
+    private final int[] proofs;
+    private final int[] disproofs;
+    private final byte[] plies; // plies left when the entry was stored
+    private final int mask;
+
+    Table(int megabytes) {
+      if (megabytes < 1) {
+        throw new IllegalArgumentException("Solver table size must be at least 1 MB: " + megabytes);
+      }
+      long entries = Long.highestOneBit(((long) megabytes << 20) / ENTRY_BYTES);
+      int size = (int) Math.min(entries, 1 << 30);
+      keys = new long[size];
+      proofs = new int[size];
+      disproofs = new int[size];
+      plies = new byte[size];
+      mask = size - 1;
+    }
+
+    /**
+     * Returns the packed numbers stored for key with remaining plies left,
+     * or -1 if there are none that hold: a proof needs at most remaining
+     * plies, a disproof at least remaining, and unsolved numbers exactly
+     * remaining.
+     */
+    long probe(long key, int remaining) {
+      int i = (int) key & mask & ~1;
+      for (int j = i; j < i + 2; j++) {
+        if (keys[j] != key || (proofs[j] == 0 && disproofs[j] == 0)) {
+          continue;
+        }
+        boolean holds = proofs[j] == 0 ? plies[j] <= remaining
+                : disproofs[j] == 0 ? plies[j] >= remaining : plies[j] == remaining;
+        if (holds) {
+          return pack(proofs[j], disproofs[j]);
+        }
+      }
+      return -1;
+    }
+
+    void store(long key, int proof, int disproof, int remaining) {
+      int i = (int) key & mask & ~1;
+      int slot;
+      if (keys[i] == key) {
+        slot = i;
+      } else if (keys[i + 1] == key) {
+        slot = i + 1;
+      } else if (isEmpty(i)) {
+        slot = i;
+      } else if (isEmpty(i + 1) || isSolved(i) && !isSolved(i + 1)) {
+        slot = i + 1;
+      } else if (!isSolved(i)) {
+        slot = i;
+      } else {
+        slot = i + 1;
+      }
+      if (keys[slot] == key && isSolved(slot) && proof != 0 && disproof != 0) {
+        return; // keep a result over a guess
+      }
+      keys[slot] = key;
+      proofs[slot] = proof;
+      disproofs[slot] = disproof;
+      plies[slot] = (byte) remaining;
+    }
+
+    private boolean isEmpty(int i) {
+      return proofs[i] == 0 && disproofs[i] == 0;
+    }
+
+    private boolean isSolved(int i) {
+      return proofs[i] == 0 || disproofs[i] == 0;
+    }
+  }
+}
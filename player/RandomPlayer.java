@@ -17,6 +17,7 @@ public class RandomPlayer extends Player {
     private Board board;
     private int playerColor;
     private int opponentColor;
+    private final Playout playout = new Playout(new SplittableRandom());
 
     /**
      * Creates a random player with the given color.  Color is 0 (black) or 1 (white).
@@ -37,24 +38,17 @@ public class RandomPlayer extends Player {
 
     /**
      * Internally records the move (updates the game board) as a move by "this" player.
+     * Every valid move is equally likely.
      * @return a chosen move by "this" player
      */
     public Move chooseMove() {
-        DList validMoves = board.validMoves(playerColor);
-        Move chosenMove = new Move();
-
-        if (validMoves.length() == 0){
-            return chosenMove;  //Returns a QUIT move if there are no valid moves.
+        int move = playout.randomMove(board.getBitBoard(), playerColor);
+        if (move == 0){
+            return new Move();  //Returns a QUIT move if there are no valid moves.
         }
 
-        try {
-            chosenMove = (Move) validMoves.nth((int)Math.random()*validMoves.length()).item();
-        } catch (InvalidNodeException e) {
-            System.out.println("Invalid node when the random player gets a random move");
-            e.printStackTrace();
-        }
+        Move chosenMove = BitBoard.toMove(move);
         board.makeMove(chosenMove, playerColor);
-        System.out.println(board.getNextPlayer()+"makes move: "+chosenMove);
 
         return chosenMove;
     }
@@ -0,0 +1,818 @@
+/* Search.java */
+
+package player;
+
+/**
+ *  A package-private alpha-beta searcher for one thread.  Owns its BitBoard
+ *  and search state; several Searches may share a TranspositionTable.
+ *  Scores are from the point of view of the player the Search plays for.
+ *
+ *  Scores are ints, SCORE_SCALE standing for the evaluators' 1.0, and lose
+ *  1% per ply on the way back to the root (see decay), so that quicker wins
+ *  and slower losses score better.  The window a child is searched with is
+ *  the parent's one mapped back through the decay, so windows, cutoffs and
+ *  table bounds are exact.  After the first move of a position the rest
+ *  are searched with a zero window and re-searched only if they beat it
+ *  (principal variation search), and each iteration after the first starts
+ *  with an aspiration window around an earlier one's score: the one two
+ *  iterations back where there is one, as scores alternate with the side
+ *  that moves last.
+ *
+ *  At the horizon a position is not simply evaluated if either player can
+ *  complete a network with its next move (see quiesce): such threats are
+ *  played out, within a node budget, so that a win or loss one ply beyond
+ *  the horizon is not scored as a quiet position.
+ *
+ *  Three selective techniques, each off unless turned on, search less than
+ *  the full tree where the other player has no network threat: late move
+ *  reductions probe moves ordered late one or two plies shallower first;
+ *  futility pruning skips, one ply above the horizon, moves that make no
+ *  threat when the evaluation is too far below the window for one move to
+ *  reach it; and in the step phase a null move (passing, which Network
+ *  does not allow) searched shallower that still fails high ends a search
+ *  whose window it fails.
+ *
+ *  Moves are packed ints (see BitBoard.moveCode) generated into one
+ *  preallocated buffer per ply, so searching allocates nothing per node.
+ */
+class Search {
+
+  private BitBoard board;
+  private final TranspositionTable table;
+  private final Evaluator evaluator;
+  private WinCache winCache; // null checks every position for networks
+  private boolean checkWins; // verify cached wins against Board.isWinByNetworks
+  private final int playerColor;
+  private final int opponentColor;
+
+  // Iterative deepening state
+  private long deadline; // System.nanoTime() after which the search stops, 0 for none
+  private volatile boolean stopped;
+  private boolean aborted;
+  private int[][] pvTable = new int[MachinePlayer.MAX_DEPTH + 1][MachinePlayer.MAX_DEPTH + 1]; // principal variation found at each ply
+  private int[] pvLength = new int[MachinePlayer.MAX_DEPTH + 1];
+  private int[] prevPv = new int[MachinePlayer.MAX_DEPTH + 1]; // principal variation of the last completed iteration
+  private int prevPvLength = 0;
+  private int completedMove; // best move of the last completed iteration, packed, 0 if none
+  private int completedScore; // and its score
+  private int[][] moveBuffer = new int[MachinePlayer.MAX_DEPTH + 1][BitBoard.MAX_MOVES]; // moves of each ply
+  private int rootMove; // best move found at ply 0
+
+  // Quiescence state
+  private int quiescenceBudget = DEFAULT_QUIESCENCE_BUDGET; // nodes per iteration, 0 for no quiescence search
+  private long quiescenceLimit; // stats.quiescenceNodes at which the current iteration's budget runs out
+  private int[][] quiescenceBuffer = new int[QUIESCENCE_DEPTH + 1][BitBoard.MAX_MOVES]; // moves of each quiescence ply
+
+  // Move ordering state
+  private boolean ordering = true;
+  private boolean windows = true; // principal variation search and aspiration windows
+  private int[][] scoreBuffer = new int[MachinePlayer.MAX_DEPTH + 1][BitBoard.MAX_MOVES]; // ordering scores of moveBuffer
+  private int[][] killers = new int[MachinePlayer.MAX_DEPTH + 1][2]; // last two moves that caused a cutoff at each ply
+  private int[][] history = new int[2][1 << 14]; // cutoff credit of each player's packed moves
+
+  // Selective search state
+  private boolean lateMoveReductions;
+  private boolean futilityPruning;
+  private boolean nullMove;
+  private boolean[] passed = new boolean[MachinePlayer.MAX_DEPTH + 1]; // a null move was made at this ply
+  private int[] threatBuffer = new int[BitBoard.MAX_MOVES]; // winning moves found by threat checks
+
+  // Statistics since the last reset
+  final SearchStats stats = new SearchStats();
+
+  // Table depth of won and lost positions, which no search can change
+  private static final int TERMINAL_DEPTH = 100;
+
+  // Score of a won position; evaluations scale from (-1, 1) to within +-SCORE_SCALE
+  static final int SCORE_SCALE = 1000000;
+  static final int WIN_SCORE = SCORE_SCALE;
+  static final int INFINITE_SCORE = WIN_SCORE + 1; // beyond every score, for open windows
+
+  // Half width of the first aspiration window, widened fourfold on each failure
+  private static final int ASPIRATION_WINDOW = SCORE_SCALE / 4;
+
+  // Quiescence search: most plies beyond the horizon, and default node budget per iteration
+  private static final int QUIESCENCE_DEPTH = 8;
+  static final int DEFAULT_QUIESCENCE_BUDGET = 1 << 16;
+
+  // Late move reductions: moves searched before reducing, depth from which
+  // to reduce, and the first move reduced by two plies instead of one
+  private static final int LMR_MOVES = 3;
+  private static final int LMR_DEPTH = 3;
+  private static final int LMR_LATE_MOVES = 12;
+
+  // Futility pruning: how far one move may move the evaluation, a little
+  // more than 99.9% of moves do in the step phase
+  private static final int FUTILITY_MARGIN = SCORE_SCALE / 4;
+
+  // Null move: plies the probe is searched shallower, and least depth to try it
+  private static final int NULL_MOVE_REDUCTION = 2;
+  private static final int NULL_MOVE_DEPTH = 3;
+
+  // Number of nodes searched between two looks at the clock
+  private static final int CLOCK_INTERVAL = 256;
+
+  // Ordering scores: the principal variation move, the hash move and the
+  // killers come first, then moves with history, then the rest by BitBoard.moveGain
+  private static final int PV_SCORE = Integer.MAX_VALUE;
+  private static final int HASH_SCORE = PV_SCORE - 1;
+  private static final int KILLER_SCORE = PV_SCORE - 3; // + 1 for the newer killer
+  private static final int HISTORY_SCORE = 1 << 8;
+  private static final int MAX_HISTORY = 1 << 24; // history is halved past this
+
+  /**
+   * Creates a Search playing for playerColor on board, scoring leaves with evaluator.
+   */
+  Search(BitBoard board, TranspositionTable table, Evaluator evaluator, int playerColor) {
+    this.board = board;
+    this.table = table;
+    this.evaluator = evaluator;
+    this.playerColor = playerColor;
+    this.opponentColor = Board.otherPlayer(playerColor);
+  }
+
+  /**
+   * Replaces the board to search on.
+   */
+  void setBoard(BitBoard board) {
+    this.board = board;
+  }
+
+  /**
+   * Turns ordering by killers, history and move gain on or off.  Off, only
+   * the principal variation and hash moves are searched early.
+   */
+  void setOrdering(boolean ordering) {
+    this.ordering = ordering;
+  }
+
+  /**
+   * Turns principal variation search and aspiration windows on or off, for
+   * comparing node counts.  Off, every move is searched with the full window.
+   */
+  void setWindows(boolean windows) {
+    this.windows = windows;
+  }
+
+  /**
+   * Sets the number of quiescence nodes (see quiesce) each iteration may
+   * search; past it, threats at the horizon are evaluated like quiet
+   * positions.  0 turns quiescence search off.
+   */
+  void setQuiescenceBudget(int nodes) {
+    this.quiescenceBudget = nodes;
+  }
+
+  /**
+   * Turns late move reductions on or off: moves after the first LMR_MOVES
+   * are probed one ply shallower, two past LMR_LATE_MOVES, and searched to
+   * the full depth only if the probe beats the window: a zero window with
+   * principal variation search (see setWindows), the full one without.
+   */
+  void setLateMoveReductions(boolean lateMoveReductions) {
+    this.lateMoveReductions = lateMoveReductions;
+  }
+
+  /**
+   * Turns futility pruning on or off: one ply above the horizon, with a
+   * zero window the evaluation misses by more than FUTILITY_MARGIN, only
+   * the first move and moves that win or threaten a network are searched.
+   */
+  void setFutilityPruning(boolean futilityPruning) {
+    this.futilityPruning = futilityPruning;
+  }
+
+  /**
+   * Turns null-move probes on or off: in the step phase, with a zero
+   * window the evaluation already fails, a pass searched
+   * NULL_MOVE_REDUCTION plies shallower that fails the window too ends the
+   * search of the position.
+   */
+  void setNullMove(boolean nullMove) {
+    this.nullMove = nullMove;
+  }
+
+  /**
+   * Makes the search look up network checks in winCache, shared with other
+   * Searches, before running them.
+   * @param winCache
+   *    the cache, or null to check every position
+   */
+  void setWinCache(WinCache winCache) {
+    this.winCache = winCache;
+  }
+
+  /**
+   * Turns verifying every win cache hit against Board.isWinByNetworks on or
+   * off.  Disagreements are counted in SearchStats.getWinCheckMismatches();
+   * verifying is as slow as the path enumeration, so only for testing.
+   */
+  void setWinCheck(boolean checkWins) {
+    this.checkWins = checkWins;
+  }
+
+  /**
+   * Clears the statistics, the principal variation and the killers, ages
+   * the history, and allows searching again after stop().
+   */
+  void reset() {
+    stats.clear();
+    prevPvLength = 0;
+    completedMove = 0;
+    completedScore = 0;
+    stopped = false;
+    for (int[] k : killers) {
+      k[0] = 0;
+      k[1] = 0;
+    }
+    for (int[] h : history) {
+      for (int i = 0; i < h.length; i++) {
+        h[i] >>= 1;
+      }
+    }
+  }
+
+  /**
+   * Takes over the last completed iteration of other, a finished search of
+   * the same position for the same player: its principal variation, best
+   * move, score and depth.  iterate() then goes on from the next depth
+   * instead of starting over.  Call after reset().
+   */
+  void resumeFrom(Search other) {
+    prevPvLength = other.prevPvLength;
+    System.arraycopy(other.prevPv, 0, prevPv, 0, prevPvLength);
+    completedMove = other.completedMove;
+    completedScore = other.completedScore;
+    stats.completedDepth = other.stats.completedDepth;
+    stats.score = other.stats.score;
+  }
+
+  /**
+   * Asks a running search, possibly on another thread, to give up.
+   */
+  void stop() {
+    stopped = true;
+  }
+
+  /**
+   * Searches with iterative deepening: firstDepth, firstDepth + 1, ... up to
+   * maxDepth, each iteration trying the previous one's principal variation
+   * first.  An iteration that runs past the deadline or is stopped is thrown
+   * away, and with a budget no new iteration starts once half of it is spent,
+   * since it would hardly finish.  Until an iteration has completed, here
+   * or in a search taken over with resumeFrom(), the deadline is ignored.
+   * @param start
+   *    System.nanoTime() when the move started
+   * @param budget
+   *    nanoseconds for the move, or 0 for no limit
+   * @return the best move of the deepest completed iteration, or null
+   */
+  Move iterate(int firstDepth, int maxDepth, long start, long budget) {
+    boolean resumed = completedMove != 0;
+    Move chosenMove = resumed ? BitBoard.toMove(completedMove) : null;
+    int score = completedScore;
+    int previousScore = score; // score of the iteration before the last one
+    for (int depth = firstDepth; depth <= maxDepth && !stopped; depth++) {
+      boolean first = depth == firstDepth && !resumed;
+      deadline = (budget == 0 || first) ? 0 : start + budget;
+      aborted = false;
+      int guess = depth > firstDepth + 1 ? previousScore : score;
+      int last = score;
+      score = aspirate(guess, depth, !first && windows);
+      if (aborted) {
+        break;
+      }
+      chosenMove = rootMove == 0 ? null : BitBoard.toMove(rootMove);
+      completedMove = rootMove;
+      completedScore = score;
+      previousScore = last;
+      stats.completedDepth = depth;
+      stats.score = (double) score / SCORE_SCALE;
+      prevPvLength = pvLength[0];
+      System.arraycopy(pvTable[0], 0, prevPv, 0, prevPvLength);
+      if (budget != 0 && System.nanoTime() - start > budget / 2) {
+        break;
+      }
+    }
+    deadline = 0;
+    stats.principalVariation = new Move[prevPvLength];
+    for (int i = 0; i < prevPvLength; i++) {
+      stats.principalVariation[i] = BitBoard.toMove(prevPv[i]);
+    }
+    return chosenMove;
+  }
+
+  /**
+   * Searches the root to the given depth, first with a window of
+   * ASPIRATION_WINDOW around guess if narrow is true.  A score outside the
+   * window only bounds the true one, so the side it fell out of is widened
+   * and the root searched again until the score falls inside.
+   * @return the root's score, meaningless if the search aborted
+   */
+  private int aspirate(int guess, int depth, boolean narrow) {
+    int window = ASPIRATION_WINDOW;
+    int alpha = narrow ? Math.max(guess - window, -INFINITE_SCORE) : -INFINITE_SCORE;
+    int beta = narrow ? Math.min(guess + window, INFINITE_SCORE) : INFINITE_SCORE;
+    quiescenceLimit = stats.quiescenceNodes + quiescenceBudget;
+    while (true) {
+      int score = search(this.playerColor, alpha, beta, depth, 0, true);
+      if (aborted || (score > alpha && score < beta)
+              || (score <= alpha && alpha == -INFINITE_SCORE) || (score >= beta && beta == INFINITE_SCORE)) {
+        return score;
+      }
+      stats.aspirationResearches++;
+      window *= 4;
+      if (score <= alpha) {
+        alpha = Math.max(score - window, -INFINITE_SCORE);
+      } else {
+        beta = Math.min(score + window, INFINITE_SCORE);
+      }
+    }
+  }
+
+  /**
+   * Searches the root position to the given depth.
+   * @return a Best object that stores the best Move and its score
+   */
+  Best searchRoot(int side, double alpha, double beta, int depth) {
+    Best myMove = new Best();
+    quiescenceLimit = stats.quiescenceNodes + quiescenceBudget;
+    myMove.score = (double) search(side, toScore(alpha), toScore(beta), depth, 0, true) / SCORE_SCALE;
+    if (rootMove != 0) {
+      myMove.move = BitBoard.toMove(rootMove);
+    }
+    return myMove;
+  }
+
+  /**
+   * Searches the position at the given ply from the root and returns its
+   * score.  At ply 0 also sets rootMove.
+   *
+   * Each position is first looked up in the transposition table: a deep
+   * enough entry whose bound settles the window ends the search.  Otherwise
+   * the previous iteration's principal variation move, then the table's best
+   * move, then the killers are searched first, then moves by history and by
+   * BitBoard.moveGain.  Once the deadline passes or stop() is called,
+   * sets aborted and returns a meaningless score.
+   * @param onPv
+   *    true if the moves leading here are the previous principal variation
+   */
+  int search(int side, int alpha, int beta, int depth, int ply, boolean onPv) {
+    int alphaOrig = alpha;
+    int betaOrig = beta;
+    long key = board.getKey();
+    pvLength[ply] = 0;
+    if (ply == 0) {
+      rootMove = 0;
+    }
+
+    long nodes = ++stats.nodes;
+    stats.nodesAtPly[ply]++;
+    if (nodes % CLOCK_INTERVAL == 0 && (stopped || (deadline != 0 && System.nanoTime() > deadline))) {
+      aborted = true;
+    }
+    if (aborted) {
+      return 0;
+    }
+
+    int hashMove = 0;
+    stats.probes++;
+    long entry = table.probe(key);
+    if (entry != 0) {
+      stats.hits++;
+      hashMove = TranspositionTable.move(entry);
+      if (hashMove != 0 && !board.isValidMove(hashMove, side)) {
+        hashMove = 0; // a key collision
+      } else if (TranspositionTable.depth(entry) >= depth) {
+        int score = TranspositionTable.score(entry);
+        int bound = TranspositionTable.bound(entry);
+        if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta)
+                || (bound == TranspositionTable.UPPER && score <= alpha)) {
+          stats.tableCutoffs++;
+          if (hashMove != 0) {
+            pvTable[ply][ply] = hashMove;
+            pvLength[ply] = 1;
+          }
+          if (ply == 0) {
+            rootMove = hashMove;
+          }
+          return score;
+        }
+      }
+    }
+
+    // time one node in SearchStats.TIMING_INTERVAL, and count it for all of them
+    boolean timed = (nodes & (SearchStats.TIMING_INTERVAL - 1)) == 0;
+    long time = timed ? System.nanoTime() : 0;
+
+    int winScore = isWin(Board.WHITE) ? WIN_SCORE : isWin(Board.BLACK) ? -WIN_SCORE : 0;
+    if (this.playerColor == Board.BLACK) {
+      winScore = -winScore;
+    }
+    if (timed) {
+      long now = System.nanoTime();
+      stats.winDetectionNanos += (now - time) * SearchStats.TIMING_INTERVAL;
+      time = now;
+    }
+    if (winScore != 0) { // has a winner
+      table.store(key, TERMINAL_DEPTH, TranspositionTable.EXACT, winScore, 0);
+      return winScore;
+    }
+    if (depth == 0) { // stop searching, but for threats
+      int boardScore = quiescenceBudget == 0 ? evaluate() : quiesce(side, alpha, beta, 0);
+      if (timed) {
+        stats.evaluationNanos += (System.nanoTime() - time) * SearchStats.TIMING_INTERVAL;
+      }
+      if (aborted) {
+        return 0;
+      }
+      int bound = TranspositionTable.EXACT; // a searched threat may only bound the score
+      if (quiescenceBudget != 0 && boardScore <= alphaOrig) {
+        bound = TranspositionTable.UPPER;
+      } else if (quiescenceBudget != 0 && boardScore >= betaOrig) {
+        bound = TranspositionTable.LOWER;
+      }
+      table.store(key, 0, bound, boardScore, 0);
+      return boardScore;
+    }
+
+    boolean maximizing = side == this.playerColor;
+    boolean zeroWindow = beta - alpha == 1;
+    boolean threatened = false; // the other player can complete a network with its next move
+    if (ply > 0 && (lateMoveReductions && depth >= LMR_DEPTH || futilityPruning && depth == 1 && zeroWindow
+            || nullMove && depth >= NULL_MOVE_DEPTH && zeroWindow)) {
+      threatened = board.winningMoves(Board.otherPlayer(side), threatBuffer, 1) > 0;
+    }
+    if (nullMove && ply > 0 && depth >= NULL_MOVE_DEPTH && zeroWindow && !threatened && !passed[ply - 1]
+            && board.getNumMoves() >= OpeningBook.ADD_PHASE_MOVES) {
+      int score = nullMoveScore(side, alpha, beta, depth, ply);
+      if (aborted) {
+        return 0;
+      }
+      if (maximizing ? score >= beta : score <= alpha) {
+        stats.nullMoveCutoffs++;
+        return score;
+      }
+    }
+    boolean futile = false; // only moves that win or threaten to are worth searching
+    if (futilityPruning && ply > 0 && depth == 1 && zeroWindow && !threatened
+            && board.winningMoves(side, threatBuffer, 1) == 0) {
+      int eval = evaluate();
+      futile = maximizing ? eval + FUTILITY_MARGIN <= alpha : eval - FUTILITY_MARGIN >= beta;
+    }
+
+    int[] moves = moveBuffer[ply];
+    int numMoves = board.generateMoves(side, moves);
+    if (timed) {
+      stats.moveGenerationNanos += (System.nanoTime() - time) * SearchStats.TIMING_INTERVAL;
+    }
+    if (numMoves == 0) {
+      return 0;  // the root move stays 0, a QUIT move, if there are no valid moves.
+    }
+
+    int pvMove = onPv && ply < prevPvLength ? prevPv[ply] : 0;
+    int[] scores = scoreBuffer[ply];
+    if (ordering) {
+      scoreMoves(side, ply, depth, moves, scores, numMoves, hashMove, pvMove);
+    } else {
+      // search the table's best move first, and the principal variation's before it
+      moveToFront(moves, numMoves, hashMove);
+      moveToFront(moves, numMoves, pvMove);
+    }
+
+    int bestScore = maximizing ? alpha : beta;
+    int bestMove = 0;
+    for (int i = 0; i < numMoves; i++) {
+      if (ordering) {
+        pickMove(moves, scores, i, numMoves);
+      }
+      int m = moves[i];
+      if (i == 0) {
+        bestMove = m; // never return without a move, even if every reply fails low
+      }
+      boolean childOnPv = onPv && ply < prevPvLength && m == prevPv[ply];
+      // the child's window: its scores that decay to at most alpha, and to at least beta
+      int childAlpha = undecay(alpha);
+      int childBeta = undecay(beta - 1) + 1;
+      board.make(m, side); // Modifies "this" BitBoard
+      if (futile && i > 0 && !board.isWin(side) && board.winningMoves(side, threatBuffer, 1) == 0) {
+        board.unmake(m, side);
+        stats.futilityPrunes++;
+        continue;
+      }
+      int reduction = 0;
+      if (lateMoveReductions && ply > 0 && i >= LMR_MOVES && depth >= LMR_DEPTH && !threatened) {
+        reduction = i >= LMR_LATE_MOVES && depth > LMR_DEPTH ? 2 : 1;
+        stats.reductions++;
+      }
+      int score;
+      if (i == 0 || !windows) {
+        score = search(Board.otherPlayer(side), childAlpha, childBeta, depth-1-reduction, ply+1, childOnPv);
+        if (reduction > 0 && (maximizing ? score > childAlpha : score < childBeta) && !aborted) {
+          stats.reductionResearches++;
+          score = search(Board.otherPlayer(side), childAlpha, childBeta, depth-1, ply+1, childOnPv);
+        }
+      } else {
+        // a later move is expected to be worse: prove it with a zero window, maybe shallower,
+        // and search it properly if not
+        int probeAlpha = maximizing ? childAlpha : childBeta - 1;
+        score = search(Board.otherPlayer(side), probeAlpha, probeAlpha + 1, depth-1-reduction, ply+1, childOnPv);
+        if (reduction > 0 && (maximizing ? score > probeAlpha : score <= probeAlpha) && !aborted) {
+          stats.reductionResearches++;
+          score = search(Board.otherPlayer(side), probeAlpha, probeAlpha + 1, depth-1, ply+1, childOnPv);
+        }
+        if (childBeta - childAlpha > 1 && (maximizing ? score > probeAlpha : score <= probeAlpha) && !aborted) {
+          stats.researches++;
+          score = search(Board.otherPlayer(side), childAlpha, childBeta, depth-1, ply+1, childOnPv);
+        }
+      }
+      board.unmake(m, side); // Restores "this" BitBoard
+      if (aborted) {
+        return 0;
+      }
+      score = decay(score); // encourage fewer moves
+      boolean better = maximizing ? score > bestScore : score < bestScore;
+      if (better) {
+        bestMove = m;
+        bestScore = score;
+        if (maximizing) {
+          alpha = score;
+        } else {
+          beta = score;
+        }
+        pvTable[ply][ply] = m;
+        System.arraycopy(pvTable[ply + 1], ply + 1, pvTable[ply], ply + 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+      }
+      if (alpha >= beta) {
+        stats.betaCutoffs++;
+        stats.cutoffMoveIndices += i;
+        if (i == 0) {
+          stats.firstMoveCutoffs++;
+        }
+        if (ordering) {
+          recordCutoff(side, ply, depth, m, scores[i]);
+        }
+        break;
+      }
+    }
+    if (ply == 0) {
+      rootMove = bestMove;
+    }
+
+    int bound = TranspositionTable.EXACT;
+    if (bestScore <= alphaOrig) {
+      bound = TranspositionTable.UPPER;
+    } else if (bestScore >= betaOrig) {
+      bound = TranspositionTable.LOWER;
+    }
+    table.store(key, depth, bound, bestScore, bestMove);
+    return bestScore;
+  }
+
+  /**
+   * Returns the score of passing at the given position, from a search
+   * NULL_MOVE_REDUCTION plies shallower with the zero window alpha, beta,
+   * or the evaluation if it does not fail the window already.
+   */
+  private int nullMoveScore(int side, int alpha, int beta, int depth, int ply) {
+    int eval = evaluate();
+    if (side == this.playerColor ? eval < beta : eval > alpha) {
+      return eval;
+    }
+    int childAlpha = undecay(alpha);
+    board.pass(side);
+    passed[ply] = true;
+    int score = search(Board.otherPlayer(side), childAlpha, childAlpha + 1, depth - 1 - NULL_MOVE_REDUCTION, ply + 1, false);
+    passed[ply] = false;
+    board.unpass(side);
+    return decay(score);
+  }
+
+  /**
+   * Scores a position with no network at the horizon, searching on while a
+   * player threatens to complete one.  Returns the evaluation if neither
+   * player can complete a network with its next move.  If side can, it
+   * wins on that move.  If only the other player can, side must defend:
+   * its moves that may stop the network (BitBoard.defences) are searched,
+   * the children being quiesced in turn, and side loses if it has none, as
+   * every other move lets the other player win on the next.
+   *
+   * Only QUIESCENCE_DEPTH plies are searched this way, and the quiescence
+   * nodes of an iteration are limited by the quiescence budget; past
+   * either, threats are evaluated like quiet positions.
+   * @param qply
+   *    plies searched beyond the horizon
+   */
+  private int quiesce(int side, int alpha, int beta, int qply) {
+    int[] moves = quiescenceBuffer[qply];
+    int sign = side == this.playerColor ? 1 : -1;
+    if (board.winningMove(side, moves) != 0) {
+      stats.quiescenceWins++;
+      return decay(sign * WIN_SCORE);
+    }
+    int other = Board.otherPlayer(side);
+    if (board.winningMove(other, moves) == 0 || qply == QUIESCENCE_DEPTH || stats.quiescenceNodes >= quiescenceLimit) {
+      return evaluate();
+    }
+    int numMoves = board.defences(side, moves, threatBuffer);
+    if (numMoves == 0) {
+      stats.quiescenceWins++;
+      return decay(decay(-sign * WIN_SCORE)); // nothing stops the other player's network
+    }
+
+    boolean maximizing = side == this.playerColor;
+    int bestScore = maximizing ? alpha : beta;
+    for (int i = 0; i < numMoves; i++) {
+      int m = moves[i];
+      int childAlpha = undecay(alpha);
+      int childBeta = undecay(beta - 1) + 1;
+      board.make(m, side);
+      long nodes = ++stats.nodes;
+      stats.quiescenceNodes++;
+      if (nodes % CLOCK_INTERVAL == 0 && (stopped || (deadline != 0 && System.nanoTime() > deadline))) {
+        aborted = true;
+      }
+      int score = isWin(Board.WHITE) ? WIN_SCORE : isWin(Board.BLACK) ? -WIN_SCORE : 0;
+      if (this.playerColor == Board.BLACK) {
+        score = -score;
+      }
+      if (score == 0 && !aborted) {
+        score = quiesce(other, childAlpha, childBeta, qply + 1);
+      }
+      board.unmake(m, side);
+      if (aborted) {
+        return 0;
+      }
+      score = decay(score);
+      if (maximizing ? score > bestScore : score < bestScore) {
+        bestScore = score;
+        if (maximizing) {
+          alpha = score;
+        } else {
+          beta = score;
+        }
+      }
+      if (alpha >= beta) {
+        break;
+      }
+    }
+    return bestScore;
+  }
+
+  /**
+   * Returns the evaluator's score of the board, from the point of view of
+   * the player the Search plays for.
+   */
+  private int evaluate() {
+    int boardScore = toScore(evaluator.evaluate(board));
+    stats.leafEvaluations++;
+    return this.playerColor == Board.BLACK ? -boardScore : boardScore;
+  }
+
+  /**
+   * Returns the score of a position one ply below, seen from its parent:
+   * 1% closer to 0, rounded toward 0.
+   */
+  static int decay(int score) {
+    return score - score / 100;
+  }
+
+  /**
+   * Returns the largest score whose decay is at most bound, so that
+   * decay(score) <= bound exactly when score <= undecay(bound).  Bounds
+   * beyond every score map to INFINITE_SCORE or -INFINITE_SCORE.
+   */
+  static int undecay(int bound) {
+    if (bound >= WIN_SCORE) {
+      return INFINITE_SCORE;
+    }
+    if (bound <= -INFINITE_SCORE) {
+      return -INFINITE_SCORE;
+    }
+    // decay(score) >= .99 * score - 1, so the answer is at most this
+    int score = (int) (((long) bound + 1) * 100 / 99) + 2;
+    while (decay(score) > bound) {
+      score--;
+    }
+    return score;
+  }
+
+  /**
+   * Returns an evaluation or a window bound from -1 to 1 as a score.
+   */
+  static int toScore(double value) {
+    return (int) Math.round(Math.max(-1, Math.min(1, value)) * SCORE_SCALE);
+  }
+
+  /**
+   * Returns true if player has a network on the board, from the win cache
+   * if the position is in it.
+   */
+  private boolean isWin(int player) {
+    if (winCache == null) {
+      return board.isWin(player);
+    }
+    long key = board.getChipKey();
+    stats.winProbes++;
+    int cached = winCache.probe(key, player);
+    if (cached >= 0) {
+      stats.winHits++;
+      if (checkWins && new Board(board).isWinByNetworks(player) != (cached == 1)) {
+        stats.winMismatches++;
+      }
+      return cached == 1;
+    }
+    boolean won = board.isWin(player);
+    winCache.store(key, player, won);
+    return won;
+  }
+
+  /**
+   * Scores the moves of a position searched to the given depth for ordering, into scores.
+   */
+  private void scoreMoves(int side, int ply, int depth, int[] moves, int[] scores, int n, int hashMove, int pvMove) {
+    int[] killer = killers[ply];
+    int[] credit = history[side];
+    boolean estimate = depth >= 2; // just above the leaves, moveGain costs more than it saves
+    for (int i = 0; i < n; i++) {
+      int m = moves[i];
+      if (m == pvMove) {
+        scores[i] = PV_SCORE;
+      } else if (m == hashMove) {
+        scores[i] = HASH_SCORE;
+      } else if (m == killer[0]) {
+        scores[i] = KILLER_SCORE + 1;
+      } else if (m == killer[1]) {
+        scores[i] = KILLER_SCORE;
+      } else if (credit[m] > 0) {
+        scores[i] = HISTORY_SCORE + credit[m];
+      } else {
+        scores[i] = HISTORY_SCORE / 2 + (estimate ? board.moveGain(m, side) : 0);
+      }
+    }
+  }
+
+  /**
+   * Swaps the best scored of moves i to n - 1 into place i, so moves are
+   * sorted only as far as the search gets before a cutoff.
+   */
+  private static void pickMove(int[] moves, int[] scores, int i, int n) {
+    int best = i;
+    for (int j = i + 1; j < n; j++) {
+      if (scores[j] > scores[best]) {
+        best = j;
+      }
+    }
+    if (best != i) {
+      int m = moves[i];
+      moves[i] = moves[best];
+      moves[best] = m;
+      int score = scores[i];
+      scores[i] = scores[best];
+      scores[best] = score;
+    }
+  }
+
+  /**
+   * Credits a move that caused a cutoff: it becomes the newer killer of its
+   * ply and gains history in proportion to the depth it cut off.
+   */
+  private void recordCutoff(int side, int ply, int depth, int move, int score) {
+    if (score == KILLER_SCORE || score == KILLER_SCORE + 1) {
+      stats.killerCutoffs++;
+    } else if (score > HISTORY_SCORE && score < KILLER_SCORE) {
+      stats.historyCutoffs++;
+    }
+    int[] killer = killers[ply];
+    if (killer[0] != move) {
+      killer[1] = killer[0];
+      killer[0] = move;
+    }
+    int[] credit = history[side];
+    credit[move] += depth * depth;
+    if (credit[move] > MAX_HISTORY) {
+      for (int i = 0; i < credit.length; i++) {
+        credit[i] >>= 1;
+      }
+    }
+  }
+
+  /**
+   * Moves the packed move to the front of the first n moves, if it is there,
+   * keeping the others in order.
+   */
+  private static void moveToFront(int[] moves, int n, int move) {
+    if (move == 0) {
+      return;
+    }
+    for (int i = 0; i < n; i++) {
+      if (moves[i] == move) {
+        System.arraycopy(moves, 0, moves, 1, i);
+        moves[0] = move;
+        return;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,555 @@
+/* SearchStats.java */
+
+package player;
+
+import java.util.*;
+
+/**
+ *  Statistics of one MachinePlayer.chooseMove(): how many positions were
+ *  searched, how well moves were ordered, where the time went and which
+ *  line the search expects.  See MachinePlayer.getSearchStats().
+ *
+ *  Counters are plain fields bumped by the search, so keeping them costs a
+ *  few increments per node.  Time is only measured at one node in
+ *  TIMING_INTERVAL and scaled up, so the clock is read rarely.
+ */
+public class SearchStats {
+
+  // One node in TIMING_INTERVAL is timed; must be a power of two
+  static final int TIMING_INTERVAL = 16;
+
+  long nodes;
+  long leafEvaluations;
+  long probes; // transposition table lookups
+  long hits;
+  long tableCutoffs; // nodes settled by a table entry
+  long winProbes; // win cache lookups
+  long winHits;
+  long winMismatches; // cached wins the path enumeration disagreed with
+  long betaCutoffs; // nodes whose move loop stopped early
+  long firstMoveCutoffs; // ... on their first move
+  long killerCutoffs; // ... on a killer move
+  long historyCutoffs; // ... on a move ordered by history
+  long cutoffMoveIndices; // sum over cutoffs of the number of moves searched before the cutting one
+  long researches; // moves that beat a zero window and were searched again
+  long aspirationResearches; // root searches repeated after falling outside the aspiration window
+  long reductions; // moves probed shallower by late move reductions
+  long reductionResearches; // ... that beat the window and were searched again to full depth
+  long futilityPrunes; // moves skipped by futility pruning
+  long nullMoveCutoffs; // positions whose null-move probe failed the window
+  long quiescenceNodes; // positions searched beyond the horizon for network threats, also in nodes
+  long quiescenceWins; // horizon positions found won or lost by a threat
+  long[] nodesAtPly = new long[MachinePlayer.MAX_DEPTH + 2];
+  long moveGenerationNanos;
+  long evaluationNanos;
+  long winDetectionNanos;
+  long elapsedNanos;
+  int completedDepth;
+  double score;
+  Move[] principalVariation = new Move[0];
+  int threads = 1;
+  boolean fromBook; // the move came from the opening book, unsearched
+  long bookProbes; // opening book lookups since the player was created
+  long bookHits;
+  boolean fromSolver; // the move starts a forced win the solver proved, unsearched
+  long solverNodes; // positions the solver expanded for this move
+  boolean ponderHit; // the opponent played the reply pondered on before this move
+  long ponders; // ponders started since the player was created
+  long ponderHits;
+  long ponderNanos; // time spent pondering since the player was created
+  long ponderHitNanos; // ... on ponders that were hits, whose searches were resumed
+
+  /**
+   * Clears every statistic.
+   */
+  void clear() {
+    nodes = 0;
+    leafEvaluations = 0;
+    probes = 0;
+    hits = 0;
+    tableCutoffs = 0;
+    winProbes = 0;
+    winHits = 0;
+    winMismatches = 0;
+    betaCutoffs = 0;
+    firstMoveCutoffs = 0;
+    killerCutoffs = 0;
+    historyCutoffs = 0;
+    cutoffMoveIndices = 0;
+    researches = 0;
+    aspirationResearches = 0;
+    reductions = 0;
+    reductionResearches = 0;
+    futilityPrunes = 0;
+    nullMoveCutoffs = 0;
+    quiescenceNodes = 0;
+    quiescenceWins = 0;
+    Arrays.fill(nodesAtPly, 0);
+    moveGenerationNanos = 0;
+    evaluationNanos = 0;
+    winDetectionNanos = 0;
+    elapsedNanos = 0;
+    completedDepth = 0;
+    score = 0;
+    principalVariation = new Move[0];
+    threads = 1;
+    fromBook = false;
+    bookProbes = 0;
+    bookHits = 0;
+    fromSolver = false;
+    solverNodes = 0;
+    ponderHit = false;
+    ponders = 0;
+    ponderHits = 0;
+    ponderNanos = 0;
+    ponderHitNanos = 0;
+  }
+
+  /**
+   * Returns a copy of these statistics.
+   */
+  SearchStats copy() {
+    SearchStats s = new SearchStats();
+    s.add(this);
+    s.elapsedNanos = elapsedNanos;
+    s.completedDepth = completedDepth;
+    s.score = score;
+    s.principalVariation = principalVariation.clone();
+    s.threads = threads;
+    s.fromBook = fromBook;
+    s.bookProbes = bookProbes;
+    s.bookHits = bookHits;
+    s.fromSolver = fromSolver;
+    s.solverNodes = solverNodes;
+    s.ponderHit = ponderHit;
+    s.ponders = ponders;
+    s.ponderHits = ponderHits;
+    s.ponderNanos = ponderNanos;
+    s.ponderHitNanos = ponderHitNanos;
+    return s;
+  }
+
+  /**
+   * Adds the counters of another thread's search to these.  The depth,
+   * score and principal variation stay those of this search.
+   */
+  void add(SearchStats other) {
+    nodes += other.nodes;
+    leafEvaluations += other.leafEvaluations;
+    probes += other.probes;
+    hits += other.hits;
+    tableCutoffs += other.tableCutoffs;
+    winProbes += other.winProbes;
+    winHits += other.winHits;
+    winMismatches += other.winMismatches;
+    betaCutoffs += other.betaCutoffs;
+    firstMoveCutoffs += other.firstMoveCutoffs;
+    killerCutoffs += other.killerCutoffs;
+    historyCutoffs += other.historyCutoffs;
+    cutoffMoveIndices += other.cutoffMoveIndices;
+    researches += other.researches;
+    aspirationResearches += other.aspirationResearches;
+    reductions += other.reductions;
+    reductionResearches += other.reductionResearches;
+    futilityPrunes += other.futilityPrunes;
+    nullMoveCutoffs += other.nullMoveCutoffs;
+    quiescenceNodes += other.quiescenceNodes;
+    quiescenceWins += other.quiescenceWins;
+    for (int i = 0; i < nodesAtPly.length; i++) {
+      nodesAtPly[i] += other.nodesAtPly[i];
+    }
+    moveGenerationNanos += other.moveGenerationNanos;
+    evaluationNanos += other.evaluationNanos;
+    winDetectionNanos += other.winDetectionNanos;
+  }
+
+  /**
+   * Returns the number of positions searched, by all threads.
+   */
+  public long getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Returns the number of positions scored by the evaluation function at the search horizon.
+   */
+  public long getLeafEvaluations() {
+    return leafEvaluations;
+  }
+
+  /**
+   * Returns the number of positions searched per second of wall-clock time.
+   */
+  public double getNodesPerSecond() {
+    return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+  }
+
+  /**
+   * Returns the number of transposition table lookups.
+   */
+  public long getTableProbes() {
+    return probes;
+  }
+
+  /**
+   * Returns the fraction of transposition table lookups that found an entry.
+   */
+  public double getTableHitRate() {
+    return probes == 0 ? 0 : (double) hits / probes;
+  }
+
+  /**
+   * Returns the fraction of transposition table lookups whose entry ended the search of its position.
+   */
+  public double getTableCutoffRate() {
+    return probes == 0 ? 0 : (double) tableCutoffs / probes;
+  }
+
+  /**
+   * Returns the number of win cache lookups, two at most per position searched.
+   */
+  public long getWinProbes() {
+    return winProbes;
+  }
+
+  /**
+   * Returns the fraction of win cache lookups that found the result, or 0
+   * if the search had no win cache.
+   */
+  public double getWinCacheHitRate() {
+    return winProbes == 0 ? 0 : (double) winHits / winProbes;
+  }
+
+  /**
+   * Returns the number of cached wins that Board.isWinByNetworks disagreed
+   * with, when the player verifies them; anything but 0 is a bug or a key
+   * collision.
+   */
+  public long getWinCheckMismatches() {
+    return winMismatches;
+  }
+
+  /**
+   * Returns the number of positions where a move failed high and the remaining moves were skipped.
+   */
+  public long getBetaCutoffs() {
+    return betaCutoffs;
+  }
+
+  /**
+   * Returns the fraction of beta cutoffs caused by the first move searched,
+   * a measure of move ordering: 1 is perfect.
+   */
+  public double getFirstMoveCutoffRate() {
+    return betaCutoffs == 0 ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+  }
+
+  /**
+   * Returns the number of beta cutoffs caused by a killer move.
+   */
+  public long getKillerCutoffs() {
+    return killerCutoffs;
+  }
+
+  /**
+   * Returns the number of beta cutoffs caused by a move ordered by the history table.
+   */
+  public long getHistoryCutoffs() {
+    return historyCutoffs;
+  }
+
+  /**
+   * Returns the average number of moves searched at a position before the
+   * one that caused its beta cutoff: 0 is perfect ordering.
+   */
+  public double getAverageCutoffIndex() {
+    return betaCutoffs == 0 ? 0 : (double) cutoffMoveIndices / betaCutoffs;
+  }
+
+  /**
+   * Returns the number of moves that a zero-window search found better than
+   * expected and that were searched again with the full window.
+   */
+  public long getResearches() {
+    return researches;
+  }
+
+  /**
+   * Returns the number of times the root was searched again because its
+   * score fell outside the aspiration window.
+   */
+  public long getAspirationResearches() {
+    return aspirationResearches;
+  }
+
+  /**
+   * Returns the number of moves late move reductions probed at a reduced depth.
+   */
+  public long getReductions() {
+    return reductions;
+  }
+
+  /**
+   * Returns the number of reduced probes that beat the window, so that
+   * their move was searched again to the full depth.
+   */
+  public long getReductionResearches() {
+    return reductionResearches;
+  }
+
+  /**
+   * Returns the number of moves futility pruning skipped.
+   */
+  public long getFutilityPrunes() {
+    return futilityPrunes;
+  }
+
+  /**
+   * Returns the number of positions whose search a null-move probe ended.
+   */
+  public long getNullMoveCutoffs() {
+    return nullMoveCutoffs;
+  }
+
+  /**
+   * Returns the number of positions searched beyond the horizon because a
+   * player could complete a network.  They are included in getNodes().
+   */
+  public long getQuiescenceNodes() {
+    return quiescenceNodes;
+  }
+
+  /**
+   * Returns the number of horizon positions scored as won or lost because
+   * a player could complete a network or could not block one.
+   */
+  public long getQuiescenceWins() {
+    return quiescenceWins;
+  }
+
+  /**
+   * Returns the number of positions searched at the given ply, the root being ply 0.
+   */
+  public long getNodesAtPly(int ply) {
+    return ply < nodesAtPly.length ? nodesAtPly[ply] : 0;
+  }
+
+  /**
+   * Returns the effective branching factor at the given ply: positions
+   * searched at ply + 1 per position searched at ply, or 0 if none was.
+   */
+  public double getBranchingFactor(int ply) {
+    long here = getNodesAtPly(ply);
+    return here == 0 ? 0 : (double) getNodesAtPly(ply + 1) / here;
+  }
+
+  /**
+   * Returns the estimated time spent generating moves, summed over all threads.
+   */
+  public long getMoveGenerationNanos() {
+    return moveGenerationNanos;
+  }
+
+  /**
+   * Returns the estimated time spent evaluating positions, not counting win detection.
+   */
+  public long getEvaluationNanos() {
+    return evaluationNanos;
+  }
+
+  /**
+   * Returns the estimated time spent looking for networks.
+   */
+  public long getWinDetectionNanos() {
+    return winDetectionNanos;
+  }
+
+  /**
+   * Returns the wall-clock time of the chooseMove() call.
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Returns the depth of the deepest search iteration that finished.
+   */
+  public int getCompletedDepth() {
+    return completedDepth;
+  }
+
+  /**
+   * Returns the score of the chosen move from the mover's point of view, -1 to 1.
+   */
+  public double getScore() {
+    return score;
+  }
+
+  /**
+   * Returns the line the search expects, starting with the chosen move.
+   */
+  public List<Move> getPrincipalVariation() {
+    return Collections.unmodifiableList(Arrays.asList(principalVariation));
+  }
+
+  /**
+   * Returns true if the move was played from the opening book without searching.
+   */
+  public boolean isFromBook() {
+    return fromBook;
+  }
+
+  /**
+   * Returns the number of opening book lookups since the player was created.
+   */
+  public long getBookProbes() {
+    return bookProbes;
+  }
+
+  /**
+   * Returns the fraction of opening book lookups since the player was created that found a move.
+   */
+  public double getBookHitRate() {
+    return bookProbes == 0 ? 0 : (double) bookHits / bookProbes;
+  }
+
+  /**
+   * Returns true if the move starts a forced win proven by the solver,
+   * played without searching.
+   */
+  public boolean isFromSolver() {
+    return fromSolver;
+  }
+
+  /**
+   * Returns the number of positions the solver expanded for the move.
+   */
+  public long getSolverNodes() {
+    return solverNodes;
+  }
+
+  /**
+   * Returns true if the opponent played the reply the player pondered on
+   * before this move, so the search started from the ponder's work.
+   */
+  public boolean isPonderHit() {
+    return ponderHit;
+  }
+
+  /**
+   * Returns the number of ponders started since the player was created.
+   */
+  public long getPonders() {
+    return ponders;
+  }
+
+  /**
+   * Returns the fraction of ponders since the player was created whose
+   * predicted reply the opponent played.
+   */
+  public double getPonderHitRate() {
+    return ponders == 0 ? 0 : (double) ponderHits / ponders;
+  }
+
+  /**
+   * Returns the time in nanoseconds spent pondering since the player was
+   * created, hits and cancelled ponders alike.
+   */
+  public long getPonderNanos() {
+    return ponderNanos;
+  }
+
+  /**
+   * Returns the time in nanoseconds spent pondering on positions the
+   * opponent then reached, since the player was created: search time the
+   * player got on the opponent's time, whose iterations its next move
+   * went on from.  With a time budget the move still uses its budget, to
+   * search deeper, so this is not time taken off the player's moves.
+   */
+  public long getPonderHitNanos() {
+    return ponderHitNanos;
+  }
+
+  /**
+   * Returns the number of threads that searched.
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Returns these statistics as one line of space-separated key=value
+   * pairs, for logs.  Times are in microseconds.
+   */
+  public String toLogLine() {
+    StringBuilder line = new StringBuilder();
+    line.append("depth=").append(completedDepth);
+    line.append(" score=").append(String.format("%.4f", score));
+    line.append(" nodes=").append(nodes);
+    line.append(" leaves=").append(leafEvaluations);
+    line.append(" nps=").append(Math.round(getNodesPerSecond()));
+    line.append(" threads=").append(threads);
+    line.append(" time_us=").append(elapsedNanos / 1000);
+    line.append(" movegen_us=").append(moveGenerationNanos / 1000);
+    line.append(" eval_us=").append(evaluationNanos / 1000);
+    line.append(" win_us=").append(winDetectionNanos / 1000);
+    line.append(" first_cutoff=").append(String.format("%.3f", getFirstMoveCutoffRate()));
+    line.append(" cutoff_index=").append(String.format("%.2f", getAverageCutoffIndex()));
+    line.append(" killer_cutoffs=").append(killerCutoffs);
+    line.append(" history_cutoffs=").append(historyCutoffs);
+    line.append(" researches=").append(researches);
+    line.append(" aspiration_researches=").append(aspirationResearches);
+    line.append(" reductions=").append(reductions);
+    line.append(" reduction_researches=").append(reductionResearches);
+    line.append(" futility_prunes=").append(futilityPrunes);
+    line.append(" null_cutoffs=").append(nullMoveCutoffs);
+    line.append(" quiescence_nodes=").append(quiescenceNodes);
+    line.append(" quiescence_wins=").append(quiescenceWins);
+    line.append(" tt_hit=").append(String.format("%.3f", getTableHitRate()));
+    line.append(" tt_cutoff=").append(String.format("%.3f", getTableCutoffRate()));
+    line.append(" win_hit=").append(String.format("%.3f", getWinCacheHitRate()));
+    if (winMismatches != 0) {
+      line.append(" win_mismatches=").append(winMismatches);
+    }
+    line.append(" book=").append(fromBook ? "hit" : "miss");
+    line.append(" book_hits=").append(bookHits).append('/').append(bookProbes);
+    line.append(" solver=").append(fromSolver ? "proven" : "none");
+    line.append(" solver_nodes=").append(solverNodes);
+    line.append(" ponder=").append(ponderHit ? "hit" : "miss");
+    line.append(" ponder_hits=").append(ponderHits).append('/').append(ponders);
+    line.append(" ponder_us=").append(ponderNanos / 1000);
+    line.append(" ponder_hit_us=").append(ponderHitNanos / 1000);
+    line.append(" ebf=");
+    for (int ply = 0; ply < completedDepth; ply++) {
+      if (ply > 0) {
+        line.append(',');
+      }
+      line.append(String.format("%.2f", getBranchingFactor(ply)));
+    }
+    line.append(" pv=");
+    for (int i = 0; i < principalVariation.length; i++) {
+      if (i > 0) {
+        line.append(',');
+      }
+      line.append(moveString(principalVariation[i]));
+    }
+    return line.toString();
+  }
+
+  /**
+   * Writes an add move as "xy" and a step move as "x2y2-x1y1", without spaces.
+   */
+  static String moveString(Move m) {
+    if (m.moveKind == Move.ADD) {
+      return "" + m.x1 + m.y1;
+    }
+    if (m.moveKind == Move.STEP) {
+      return "" + m.x2 + m.y2 + "-" + m.x1 + m.y1;
+    }
+    return "quit";
+  }
+
+  public String toString() {
+    return toLogLine();
+  }
+}
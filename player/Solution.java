@@ -0,0 +1,81 @@
+/* Solution.java */
+
+package player;
+
+import java.util.*;
+
+/**
+ *  The result of MachinePlayer.solve(): whether the player to move can
+ *  force a network, the line proving it, and what the proof cost.
+ */
+public class Solution {
+
+  // Results
+  public static final int PROVEN = 1; // the player to move can force a network
+  public static final int DISPROVEN = -1; // it cannot, within the ply limit
+  public static final int UNKNOWN = 0; // the node budget ran out first
+
+  int result = UNKNOWN;
+  Move[] line = new Move[0];
+  long nodes;
+  long elapsedNanos;
+  int plies;
+
+  /**
+   * Returns PROVEN, DISPROVEN or UNKNOWN.
+   */
+  public int getResult() {
+    return result;
+  }
+
+  /**
+   * Returns true if a forced network win was proven.
+   */
+  public boolean isProven() {
+    return result == PROVEN;
+  }
+
+  /**
+   * Returns the winning line if the win was proven, starting with the
+   * winning player's move and ending with the move completing its network,
+   * else an empty list.  The defender's moves are one defence each, one
+   * that does not lose at once where there is one.
+   */
+  public List<Move> getLine() {
+    return Collections.unmodifiableList(Arrays.asList(line));
+  }
+
+  /**
+   * Returns the number of positions the proof-number search expanded.
+   */
+  public long getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Returns how long the search took, in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Returns the most plies a winning line could have.
+   */
+  public int getPlies() {
+    return plies;
+  }
+
+  public String toString() {
+    String name = result == PROVEN ? "proven" : result == DISPROVEN ? "disproven" : "unknown";
+    StringBuilder s = new StringBuilder(name);
+    s.append(" nodes=").append(nodes).append(" time_us=").append(elapsedNanos / 1000).append(" line=");
+    for (int i = 0; i < line.length; i++) {
+      if (i > 0) {
+        s.append(',');
+      }
+      s.append(SearchStats.moveString(line[i]));
+    }
+    return s.toString();
+  }
+}
@@ -0,0 +1,593 @@
+/* Tournament.java */
+
+package player;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ *  A headless round-robin tournament between player configurations, with
+ *  many games played concurrently in one JVM.  Every pair of configurations
+ *  plays pairs of games from the same random opening, each configuration
+ *  once with each color.  Reports each matchup's score with a 95% confidence
+ *  interval and Elo difference, each configuration's average move latency,
+ *  and the number of games per second.
+ *
+ *  Usage: java player.Tournament [-pairs n] [-threads n] [-opening n] [-seed n] config config...
+ *
+ *  A config is "random", or "machine" or "mcts" followed by options, for
+ *  example "machine:depth=3,eval=features,time=200ms,threads=1,table=4,book=opening.book"
+ *  or "mcts:time=200ms".  See Config.
+ */
+public class Tournament {
+
+  // Game results
+  public static final int BLACK_WINS = Board.BLACK;
+  public static final int WHITE_WINS = Board.WHITE;
+  public static final int DRAW = 2;
+
+  // Games still undecided after this many moves are draws
+  public static final int MAX_MOVES = 200;
+
+  // Transposition table size of each player, in megabytes, unless configured
+  private static final int TABLE_SIZE = 1;
+
+  // Playouts per move of each MCTS player, unless configured
+  private static final int MCTS_PLAYOUTS = 1000;
+
+  /**
+   * A player configuration, parsed from "random", or from "machine" or
+   * "mcts" with comma-separated options after a colon.  A machine player
+   * (MachinePlayer) takes:
+   *
+   *    depth=n      deepest search, default 2, or MachinePlayer.MAX_DEPTH with a time budget
+   *    eval=e       "connections" (default), "features" or a FeatureEvaluator weight file
+   *    time=t       time budget per move, such as 200ms or 1s; none by default
+   *    threads=n    search threads, default 1
+   *    table=n      transposition table megabytes, default 1
+   *    book=f       opening book file; none by default
+   *    quiescence=n quiescence nodes per search iteration, 0 for none; Search's default otherwise
+   *    ponder=b     "true" to search on the opponent's time, "false" (default) not to
+   *    lmr=b        "true" for late move reductions, off by default
+   *    futility=b   "true" for futility pruning, off by default
+   *    nullmove=b   "true" for null-move probes, off by default
+   *    solver=n     proof-number search nodes per move for forced wins, 0 (default) for none
+   *
+   * An MCTS player (MctsPlayer) takes:
+   *
+   *    playouts=n   playouts per move, default 1000
+   *    time=t       time budget per move instead
+   *    threads=n    threads growing the tree, default 1
+   */
+  public static class Config {
+    private final String spec;
+    private final boolean random;
+    private final boolean mcts;
+    private int playouts = MCTS_PLAYOUTS;
+    private int depth = 2;
+    private Evaluator evaluator = new ConnectionEvaluator();
+    private Duration timeBudget;
+    private int threads = 1;
+    private int tableSize = TABLE_SIZE;
+    private OpeningBook book;
+    private int quiescenceBudget = Search.DEFAULT_QUIESCENCE_BUDGET;
+    private boolean ponder;
+    private boolean lateMoveReductions;
+    private boolean futilityPruning;
+    private boolean nullMove;
+    private long solverBudget;
+
+    /**
+     * Parses a configuration.
+     * @throws IllegalArgumentException if spec is not a valid configuration
+     * @throws IOException if a weight file or book cannot be read
+     */
+    public Config(String spec) throws IOException {
+      this.spec = spec;
+      String[] parts = spec.split(":", 2);
+      if (parts[0].equals("random")) {
+        random = true;
+        mcts = false;
+        if (parts.length > 1) {
+          throw new IllegalArgumentException("A random player has no options: " + spec);
+        }
+        return;
+      }
+      if (!parts[0].equals("machine") && !parts[0].equals("mcts")) {
+        throw new IllegalArgumentException("Unknown player: " + spec);
+      }
+      random = false;
+      mcts = parts[0].equals("mcts");
+      boolean depthGiven = false;
+      for (String option : parts.length > 1 ? parts[1].split(",") : new String[0]) {
+        String[] kv = option.split("=", 2);
+        if (kv.length != 2) {
+          throw new IllegalArgumentException("Bad option in " + spec + ": " + option);
+        }
+        boolean shared = kv[0].equals("time") || kv[0].equals("threads");
+        if (!shared && mcts != kv[0].equals("playouts")) {
+          throw new IllegalArgumentException("Unknown option in " + spec + ": " + kv[0]);
+        }
+        try {
+          switch (kv[0]) {
+            case "depth":
+              depth = Integer.parseInt(kv[1]);
+              depthGiven = true;
+              break;
+            case "eval":
+              evaluator = evaluator(kv[1]);
+              break;
+            case "time":
+              timeBudget = duration(kv[1]);
+              break;
+            case "threads":
+              threads = Integer.parseInt(kv[1]);
+              break;
+            case "table":
+              tableSize = Integer.parseInt(kv[1]);
+              break;
+            case "book":
+              book = OpeningBook.open(kv[1]);
+              break;
+            case "quiescence":
+              quiescenceBudget = Integer.parseInt(kv[1]);
+              break;
+            case "ponder":
+              ponder = flag(spec, option, kv[1]);
+              break;
+            case "lmr":
+              lateMoveReductions = flag(spec, option, kv[1]);
+              break;
+            case "futility":
+              futilityPruning = flag(spec, option, kv[1]);
+              break;
+            case "nullmove":
+              nullMove = flag(spec, option, kv[1]);
+              break;
+            case "solver":
+              solverBudget = Long.parseLong(kv[1]);
+              break;
+            case "playouts":
+              playouts = Integer.parseInt(kv[1]);
+              break;
+            default:
+              throw new IllegalArgumentException("Unknown option in " + spec + ": " + kv[0]);
+          }
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("Bad number in " + spec + ": " + option);
+        }
+      }
+      if (timeBudget != null && !depthGiven) {
+        depth = MachinePlayer.MAX_DEPTH;
+      }
+      if (depth < 1 || depth > MachinePlayer.MAX_DEPTH) {
+        throw new IllegalArgumentException("Search depth must be 1 to " + MachinePlayer.MAX_DEPTH + ": " + spec);
+      }
+      if (solverBudget < 0) {
+        throw new IllegalArgumentException("Solver budget must not be negative: " + spec);
+      }
+      if (playouts < 1) {
+        throw new IllegalArgumentException("Number of playouts must be at least 1: " + spec);
+      }
+    }
+
+    /**
+     * Returns a new player of this configuration with the given color.
+     */
+    public Player create(int color) {
+      if (random) {
+        return new RandomPlayer(color);
+      }
+      if (mcts) {
+        MctsPlayer p = timeBudget == null ? new MctsPlayer(color, playouts) : new MctsPlayer(color, timeBudget);
+        if (threads > 1) {
+          p.setThreads(threads);
+        }
+        return p;
+      }
+      MachinePlayer p = new MachinePlayer(color, depth, tableSize, evaluator);
+      p.setTimeBudget(timeBudget);
+      p.setOpeningBook(book);
+      p.setQuiescenceBudget(quiescenceBudget);
+      p.setPondering(ponder);
+      p.setLateMoveReductions(lateMoveReductions);
+      p.setFutilityPruning(futilityPruning);
+      p.setNullMove(nullMove);
+      p.setSolverBudget(solverBudget);
+      if (threads > 1) {
+        p.setThreads(threads);
+      }
+      return p;
+    }
+
+    public String toString() {
+      return spec;
+    }
+
+    /**
+     * Returns the value of a boolean option, "true" or "false".
+     * @throws IllegalArgumentException if it is neither
+     */
+    private static boolean flag(String spec, String option, String value) {
+      if (!value.equals("true") && !value.equals("false")) {
+        throw new IllegalArgumentException("Bad option in " + spec + ": " + option);
+      }
+      return value.equals("true");
+    }
+  }
+
+  /**
+   * Returns the evaluator named "connections" or "features", or a
+   * FeatureEvaluator with weights read from the named file.
+   */
+  static Evaluator evaluator(String name) throws IOException {
+    if (name.equals("connections")) {
+      return new ConnectionEvaluator();
+    }
+    if (name.equals("features")) {
+      return new FeatureEvaluator();
+    }
+    return FeatureEvaluator.load(name);
+  }
+
+  /**
+   * Parses a duration such as 200ms, 2s or 1.5s.
+   */
+  static Duration duration(String s) {
+    if (s.endsWith("ms")) {
+      return Duration.ofMillis(Long.parseLong(s.substring(0, s.length() - 2)));
+    }
+    if (s.endsWith("s")) {
+      return Duration.ofMillis(Math.round(1000 * Double.parseDouble(s.substring(0, s.length() - 1))));
+    }
+    throw new IllegalArgumentException("A time needs a unit, ms or s: " + s);
+  }
+
+  /**
+   * A player that adds up the time another player takes to choose moves.
+   */
+  public static class TimedPlayer extends Player {
+    private final Player player;
+    private long nanos;
+    private int moves;
+
+    public TimedPlayer(Player player) {
+      this.player = player;
+      this.myName = player.myName;
+    }
+
+    public Move chooseMove() {
+      long start = System.nanoTime();
+      Move m = player.chooseMove();
+      nanos += System.nanoTime() - start;
+      moves++;
+      return m;
+    }
+
+    public boolean opponentMove(Move m) {
+      return player.opponentMove(m);
+    }
+
+    public boolean forceMove(Move m) {
+      return player.forceMove(m);
+    }
+
+    /**
+     * Returns the player whose moves are timed.
+     */
+    public Player getPlayer() {
+      return player;
+    }
+
+    /**
+     * Returns the total time spent in chooseMove().
+     */
+    public long getNanos() {
+      return nanos;
+    }
+
+    /**
+     * Returns the number of moves chosen.
+     */
+    public int getMoves() {
+      return moves;
+    }
+  }
+
+  /**
+   * The outcome of one tournament game.
+   */
+  public static class Game {
+    public final int[] configs = new int[2]; // indexes of the players' configurations, indexed by color
+    public final long[] nanos = new long[2]; // time spent choosing moves, indexed by color
+    public final int[] moves = new int[2]; // moves chosen, indexed by color
+    public int result; // BLACK_WINS, WHITE_WINS or DRAW
+
+    /**
+     * Returns the points the player of color scored: 1 for a win, .5 for a draw.
+     */
+    public double points(int color) {
+      return result == DRAW ? 0.5 : result == color ? 1 : 0;
+    }
+  }
+
+  /**
+   * Plays one game between white and black, checking every move on a board
+   * of its own.  A player that makes an illegal move or quits loses.  If a
+   * move completes networks for both players, the player who moved loses.
+   * @return BLACK_WINS, WHITE_WINS or DRAW
+   */
+  public static int playGame(Player white, Player black) {
+    return playGame(white, black, new Move[0]);
+  }
+
+  /**
+   * Plays one game like playGame(white, black), starting after the given
+   * opening moves, which both players are told about.  White moves first.
+   * @param opening
+   *    valid moves that win no game
+   * @return BLACK_WINS, WHITE_WINS or DRAW
+   */
+  public static int playGame(Player white, Player black, Move[] opening) {
+    BitBoard referee = new BitBoard(8);
+    Player[] players = new Player[2];
+    players[Board.WHITE] = white;
+    players[Board.BLACK] = black;
+
+    int side = Board.WHITE;
+    for (Move m : opening) {
+      if (!referee.makeMove(m, side) || !players[side].forceMove(m)
+              || !players[Board.otherPlayer(side)].opponentMove(m)) {
+        throw new IllegalArgumentException("Invalid opening move: " + m);
+      }
+      side = Board.otherPlayer(side);
+    }
+    for (int i = opening.length; i < MAX_MOVES; i++) {
+      int other = Board.otherPlayer(side);
+      Move m = players[side].chooseMove();
+      if (m.moveKind == Move.QUIT || !referee.makeMove(m, side)) {
+        return other;
+      }
+      players[other].opponentMove(m);
+      if (referee.isWin(other)) {
+        return other;
+      }
+      if (referee.isWin(side)) {
+        return side;
+      }
+      side = other;
+    }
+    return DRAW;
+  }
+
+  /**
+   * Returns random valid moves from the empty board, white first.  Too few
+   * chips are placed for either player to win.
+   * @param length
+   *    number of moves, at most 10
+   */
+  public static Move[] randomOpening(Random random, int length) {
+    BitBoard b = new BitBoard(8);
+    Move[] opening = new Move[length];
+    int[] moves = new int[BitBoard.MAX_MOVES];
+    int side = Board.WHITE;
+    for (int i = 0; i < length; i++) {
+      int n = b.generateMoves(side, moves);
+      opening[i] = BitBoard.toMove(moves[random.nextInt(n)]);
+      b.makeMove(opening[i], side);
+      side = Board.otherPlayer(side);
+    }
+    return opening;
+  }
+
+  /**
+   * Plays one game between configurations from an opening, timing both players.
+   */
+  static Game playGame(Config[] configs, int whiteConfig, int blackConfig, Move[] opening) {
+    Game game = new Game();
+    game.configs[Board.WHITE] = whiteConfig;
+    game.configs[Board.BLACK] = blackConfig;
+    TimedPlayer[] players = new TimedPlayer[2];
+    try {
+      for (int color = Board.BLACK; color <= Board.WHITE; color++) {
+        players[color] = new TimedPlayer(configs[game.configs[color]].create(color));
+      }
+      game.result = playGame(players[Board.WHITE], players[Board.BLACK], opening);
+      for (int color = Board.BLACK; color <= Board.WHITE; color++) {
+        game.nanos[color] = players[color].getNanos();
+        game.moves[color] = players[color].getMoves();
+      }
+    } finally {
+      for (TimedPlayer player : players) {
+        if (player != null) {
+          stopThreads(player.getPlayer());
+        }
+      }
+    }
+    return game;
+  }
+
+  /**
+   * Stops the threads a player may have left running, so that they do not
+   * slow down later games, also when its game failed.
+   */
+  private static void stopThreads(Player player) {
+    if (player instanceof MachinePlayer) {
+      MachinePlayer p = (MachinePlayer) player;
+      p.setThreads(1); // stops its helper threads
+      p.setPondering(false); // and its ponder thread
+    } else if (player instanceof MctsPlayer) {
+      ((MctsPlayer) player).setThreads(1);
+    }
+  }
+
+  /**
+   * Plays a round robin between configurations on a pool of threads: every
+   * two configurations play the given number of pairs of games, a pair
+   * being two games from the same random opening with colors swapped.
+   * A game that fails is reported and left out of the returned games; the
+   * others are still played.
+   * @param threads
+   *    number of games played at once
+   * @param openingMoves
+   *    random moves before the players take over, 0 to 10
+   * @param seed
+   *    seed of the random openings
+   */
+  public static List<Game> run(Config[] configs, int pairs, int threads, int openingMoves, long seed)
+          throws InterruptedException {
+    Random random = new Random(seed);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<Game>> futures = new ArrayList<Future<Game>>();
+    for (int a = 0; a < configs.length; a++) {
+      for (int b = a + 1; b < configs.length; b++) {
+        for (int pair = 0; pair < pairs; pair++) {
+          Move[] opening = randomOpening(random, openingMoves);
+          int first = a, second = b;
+          futures.add(pool.submit(() -> playGame(configs, first, second, opening)));
+          futures.add(pool.submit(() -> playGame(configs, second, first, opening)));
+        }
+      }
+    }
+    List<Game> games = new ArrayList<Game>();
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          games.add(futures.get(i).get());
+        } catch (ExecutionException e) {
+          System.out.println("Tournament game " + i + " failed: " + e.getCause());
+          e.getCause().printStackTrace();
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    return games;
+  }
+
+  /**
+   * Returns the Elo rating difference that makes score the expected score,
+   * infinite for a score of 0 or 1.
+   */
+  public static double elo(double score) {
+    return -400 * Math.log10(1 / score - 1);
+  }
+
+  /**
+   * Prints each matchup's results from the first configuration's point of
+   * view, and each configuration's overall score and move latency, after
+   * how many of the scheduled games failed if any did.
+   */
+  static void report(Config[] configs, List<Game> games, int scheduled, double seconds) {
+    if (games.size() < scheduled) {
+      System.out.printf("%d of %d games failed and are left out of these results%n", scheduled - games.size(), scheduled);
+    }
+    for (int a = 0; a < configs.length; a++) {
+      for (int b = a + 1; b < configs.length; b++) {
+        int wins = 0, losses = 0, draws = 0;
+        double points = 0, squares = 0;
+        for (Game g : games) {
+          for (int color = Board.BLACK; color <= Board.WHITE; color++) {
+            if (g.configs[color] == a && g.configs[Board.otherPlayer(color)] == b) {
+              double p = g.points(color);
+              points += p;
+              squares += p * p;
+              wins += p == 1 ? 1 : 0;
+              losses += p == 0 ? 1 : 0;
+              draws += p == 0.5 ? 1 : 0;
+            }
+          }
+        }
+        int n = wins + losses + draws;
+        if (n == 0) {
+          continue;
+        }
+        double score = points / n;
+        double margin = 1.96 * Math.sqrt(Math.max(squares / n - score * score, 0) / n); // 95% interval
+        System.out.printf("%s vs %s: +%d -%d =%d, score %.1f%% +- %.1f%%, Elo %s [%s, %s]%n",
+                configs[a], configs[b], wins, losses, draws, 100 * score, 100 * margin,
+                eloString(score), eloString(score - margin), eloString(score + margin));
+      }
+    }
+    for (int c = 0; c < configs.length; c++) {
+      double points = 0;
+      int played = 0, moves = 0;
+      long nanos = 0;
+      for (Game g : games) {
+        for (int color = Board.BLACK; color <= Board.WHITE; color++) {
+          if (g.configs[color] == c) {
+            points += g.points(color);
+            played++;
+            moves += g.moves[color];
+            nanos += g.nanos[color];
+          }
+        }
+      }
+      System.out.printf("%s: %.1f/%d points, %.3f ms/move%n", configs[c], points, played,
+              nanos / 1e6 / Math.max(moves, 1));
+    }
+    System.out.printf("%d games in %.2f seconds, %.2f games/second%n", games.size(), seconds, games.size() / seconds);
+  }
+
+  private static String eloString(double score) {
+    if (score <= 0) {
+      return "-inf";
+    }
+    if (score >= 1) {
+      return "+inf";
+    }
+    return String.format("%+.0f", elo(score));
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int pairs = 50;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int openingMoves = 4;
+    long seed = 1;
+    List<Config> configs = new ArrayList<Config>();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "-pairs":
+            pairs = Integer.parseInt(args[++i]);
+            break;
+          case "-threads":
+            threads = Integer.parseInt(args[++i]);
+            break;
+          case "-opening":
+            openingMoves = Integer.parseInt(args[++i]);
+            break;
+          case "-seed":
+            seed = Long.parseLong(args[++i]);
+            break;
+          default:
+            configs.add(new Config(args[i]));
+        }
+      }
+      if (openingMoves < 0 || openingMoves > 10) {
+        throw new IllegalArgumentException("Opening moves must be 0 to 10: " + openingMoves);
+      }
+      if (configs.size() == 1) {
+        throw new IllegalArgumentException("A tournament needs at least two players");
+      }
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      System.out.println(e.getMessage());
+      System.out.println("Usage: java player.Tournament [-pairs n] [-threads n] [-opening n] [-seed n] config config...");
+      System.exit(2);
+    }
+    if (configs.isEmpty()) {
+      configs.add(new Config("machine:depth=2"));
+      configs.add(new Config("random"));
+    }
+    Config[] all = configs.toArray(new Config[configs.size()]);
+
+    System.out.println("Round robin of " + all.length + " players, " + pairs + " game pairs per matchup, "
+            + openingMoves + "-move random openings, " + threads + " threads");
+    long start = System.nanoTime();
+    List<Game> games = run(all, pairs, threads, openingMoves, seed);
+    int scheduled = all.length * (all.length - 1) * pairs; // two games a pair
+    report(all, games, scheduled, (System.nanoTime() - start) / 1e9);
+  }
+}
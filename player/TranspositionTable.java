@@ -0,0 +1,122 @@
+package player;
+
+/**
+ * A package-private, fixed-size table of search results keyed by Zobrist key.
+ *
+ * Entries live two to a bucket: the first slot keeps the deepest result seen
+ * for the current search, the second always takes the newest one.  Entries
+ * left over from earlier searches are replaced first.
+ *
+ * Several search threads may share a table without locking.  Each entry is
+ * one packed data word plus the key xor'ed with that word, so an entry torn
+ * by two racing writers no longer matches its key and reads as a miss.
+ */
+class TranspositionTable {
+    // Bound types
+    static final int EXACT = 0;
+    static final int LOWER = 1; // the score is at least the stored one
+    static final int UPPER = 2; // the score is at most the stored one
+
+    // Data word layout: score << 32 | generation << 24 | bound << 21 | depth << 14 | move
+    private static final int ENTRY_BYTES = 16;
+
+    private final long[] checks; // key ^ data
+    private final long[] data;
+    private final int mask;
+    private volatile int generation = 0;
+
+    /**
+     * Creates a table using at most the given number of megabytes.
+     * @param megabytes
+     *      table size, at least 1
+     */
+    TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Transposition table size must be at least 1 MB: " + megabytes);
+        }
+        long entries = Long.highestOneBit(((long) megabytes << 20) / ENTRY_BYTES);
+        int size = (int) Math.min(entries, 1 << 30);
+        checks = new long[size];
+        data = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Starts a new search, aging the stored entries.
+     */
+    void newSearch() {
+        generation = (generation + 1) & 0xff;
+    }
+
+    /**
+     * Returns the data word stored for key, or 0 if it is not stored.
+     */
+    long probe(long key) {
+        int i = (int) key & mask & ~1;
+        long d = data[i];
+        if (d != 0 && (checks[i] ^ d) == key) {
+            return d;
+        }
+        d = data[i + 1];
+        if (d != 0 && (checks[i + 1] ^ d) == key) {
+            return d;
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result.
+     * @param score
+     *      score as Search scales it, exact so that bounds compare exactly
+     * @param depth
+     *      remaining depth the position was searched to, 0 to 126
+     * @param bound
+     *      EXACT, LOWER or UPPER
+     * @param move
+     *      best move packed by BitBoard.moveCode, or 0
+     */
+    void store(long key, int depth, int bound, int score, int move) {
+        int i = (int) key & mask & ~1;
+        long old = data[i];
+        boolean same = old != 0 && (checks[i] ^ old) == key;
+        if (!same && old != 0 && generation(old) == generation && depth + 1 < ((old >>> 14) & 0x7f)) {
+            i++; // keep the deeper entry of this search, use the always-replace slot
+            old = data[i];
+            same = old != 0 && (checks[i] ^ old) == key;
+        }
+        if (same && move == 0) {
+            move = move(old); // keep the old best move for ordering
+        }
+        long d = ((long) score << 32) | ((long) generation << 24)
+                | ((long) bound << 21) | ((long) (depth + 1) << 14) | move; // depth + 1 keeps d nonzero
+        data[i] = d;
+        checks[i] = key ^ d;
+    }
+
+    static int depth(long entry) {
+        return (int) ((entry >>> 14) & 0x7f) - 1;
+    }
+
+    static int bound(long entry) {
+        return (int) ((entry >>> 21) & 3);
+    }
+
+    static int score(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    static int move(long entry) {
+        return (int) (entry & 0x3fff);
+    }
+
+    private static int generation(long entry) {
+        return (int) ((entry >>> 24) & 0xff);
+    }
+
+    /**
+     * Returns the number of entries the table can hold.
+     */
+    int capacity() {
+        return data.length;
+    }
+}
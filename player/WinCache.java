@@ -0,0 +1,80 @@
+package player;
+
+/**
+ * A package-private, fixed-size, direct-mapped cache of network checks
+ * keyed by the Zobrist key of the chips (see BitBoard.getChipKey).
+ *
+ * Each entry is one word: the key with its low four bits replaced by, for
+ * each color, whether the color's win is known and whether it won.  Those
+ * low key bits are implied by the slot, which they help index.  A new key
+ * simply evicts the slot's old one.
+ *
+ * Several search threads may share a cache without locking: an entry is a
+ * single long written whole, so a racing writer can only make a result be
+ * forgotten, never wrong.
+ */
+class WinCache {
+    // Flag bits of a color in an entry: KNOWN << 2 * color and WON << 2 * color
+    private static final long KNOWN = 1;
+    private static final long WON = 2;
+    private static final long FLAGS = 0xf;
+
+    private static final int ENTRY_BYTES = 8;
+
+    private final long[] entries;
+    private final int mask;
+
+    /**
+     * Creates a cache using at most the given number of megabytes.
+     * @param megabytes
+     *      cache size, at least 1
+     */
+    WinCache(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Win cache size must be at least 1 MB: " + megabytes);
+        }
+        long size = Long.highestOneBit(((long) megabytes << 20) / ENTRY_BYTES);
+        entries = new long[(int) Math.min(size, 1 << 30)];
+        mask = entries.length - 1;
+    }
+
+    /**
+     * Returns 1 if player is known to have a network in the position with
+     * the given chip key, 0 if it is known not to, and -1 if it is not cached.
+     */
+    int probe(long key, int player) {
+        long entry = entries[(int) key & mask];
+        if (entry == 0 || ((entry ^ key) & ~FLAGS) != 0) {
+            return -1;
+        }
+        int shift = 2 * player;
+        if ((entry & (KNOWN << shift)) == 0) {
+            return -1;
+        }
+        return (entry & (WON << shift)) != 0 ? 1 : 0;
+    }
+
+    /**
+     * Stores whether player has a network in the position with the given chip key.
+     */
+    void store(long key, int player, boolean won) {
+        int i = (int) key & mask;
+        long entry = entries[i];
+        if (entry == 0 || ((entry ^ key) & ~FLAGS) != 0) {
+            entry = key & ~FLAGS; // evict the other position
+        }
+        int shift = 2 * player;
+        entry |= KNOWN << shift;
+        if (won) {
+            entry |= WON << shift;
+        }
+        entries[i] = entry;
+    }
+
+    /**
+     * Returns the number of positions the cache can hold.
+     */
+    int capacity() {
+        return entries.length;
+    }
+}